@@ -0,0 +1,14 @@
+/*
+Angle Helpers
+*/
+
+package org.firstinspires.ftc.teamcode.api;
+
+public class Angles {
+
+    // Wrap an angle (in radians) into [-pi, pi)
+    public static double wrap(double angle){
+        return angle - 2*Math.PI*Math.floor((angle + Math.PI)/(2*Math.PI));
+    }
+
+}
@@ -0,0 +1,118 @@
+/*
+Arrival Future
+Completes once the robot has stayed within thresholds of the ControlledDrivetrain's target for a number of consecutive cycles
+The controller thread checks it every cycle, so a thread waiting on it sleeps instead of polling isBusy()
+get() returns true on arrival, cancel() (or a new target) stops waiting
+*/
+
+package org.firstinspires.ftc.teamcode.api;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class ArrivalFuture implements Future<Boolean> {
+
+    // How close the robot must be to the target for each coordinate
+    public final double xThreshold;
+    public final double yThreshold;
+    public final double phiThreshold;
+    // Number of consecutive cycles within the thresholds needed to arrive
+    public final int cycles;
+
+    // Consecutive cycles within the thresholds so far
+    private int count = 0;
+
+    private boolean done = false;
+    private boolean cancelled = false;
+
+    // Clock that timeouts are measured and waited on with
+    private final RobotClock clock;
+
+    public ArrivalFuture(double xThreshold, double yThreshold, double phiThreshold, int cycles){
+        this(xThreshold, yThreshold, phiThreshold, cycles, RobotClock.getDefault());
+    }
+
+    public ArrivalFuture(double xThreshold, double yThreshold, double phiThreshold, int cycles, RobotClock clock){
+        this.xThreshold = xThreshold;
+        this.yThreshold = yThreshold;
+        this.phiThreshold = phiThreshold;
+        this.cycles = Math.max(cycles, 1);
+        this.clock = clock;
+    }
+
+    // Called by the controller each cycle with the current errors, returns whether the future is done
+    synchronized boolean update(double Ex, double Ey, double Ephi, boolean settling){
+        if(done) return true;
+
+        if(!settling && Math.abs(Ex) <= xThreshold && Math.abs(Ey) <= yThreshold && Math.abs(Ephi) <= phiThreshold) count++;
+        else count = 0;
+
+        if(count >= cycles){
+            done = true;
+            clock.wake(this);
+        }
+
+        return done;
+    }
+
+    // Stop waiting (threads blocked in get() throw CancellationException, await() returns false)
+    public synchronized boolean cancel(boolean mayInterruptIfRunning){
+        if(done) return false;
+
+        cancelled = true;
+        done = true;
+        clock.wake(this);
+
+        return true;
+    }
+
+    public synchronized boolean isCancelled(){ return cancelled; }
+
+    public synchronized boolean isDone(){ return done; }
+
+    // Whether the robot arrived (false while waiting or if cancelled)
+    public synchronized boolean hasArrived(){ return done && !cancelled; }
+
+    // Wait up to timeout milliseconds (0 waits forever), returns whether the robot arrived
+    public synchronized boolean await(long timeout) throws InterruptedException {
+        long deadline = clock.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+
+        while(!done){
+            if(timeout <= 0){
+                clock.waitNanos(this, 0);
+                continue;
+            }
+
+            long remaining = deadline - clock.nanoTime();
+            if(remaining <= 0) return false;
+
+            clock.waitNanos(this, remaining);
+        }
+
+        return !cancelled;
+    }
+
+    public synchronized Boolean get() throws InterruptedException {
+        while(!done) clock.waitNanos(this, 0);
+
+        if(cancelled) throw new CancellationException("Arrival was cancelled");
+        return true;
+    }
+
+    public synchronized Boolean get(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+        long deadline = clock.nanoTime() + unit.toNanos(timeout);
+
+        while(!done){
+            long remaining = deadline - clock.nanoTime();
+            if(remaining <= 0) throw new TimeoutException("Robot didn't arrive in time");
+
+            clock.waitNanos(this, remaining);
+        }
+
+        if(cancelled) throw new CancellationException("Arrival was cancelled");
+        return true;
+    }
+
+}
@@ -0,0 +1,151 @@
+/*
+Bulk Read Cache
+Shares one hub transaction per cycle between every DcMotorX on the same hub
+Each refresh reads all encoder positions, velocities and busy flags at once, so N motor reads cost 1 round trip instead of N
+
+Usage: create one cache per hub, attach() the motors plugged into it, and call invalidate() at the start of each control cycle
+
+A REV hub is left in the SDK's AUTO bulk caching mode rather than MANUAL: the hub's mode applies to every reader on it
+(motors that aren't attached, isBusy(), limit switches and other digital inputs), and in MANUAL mode those would only
+see new values when something cleared the SDK's cache. AUTO refreshes whenever a value is read twice, so they stay fresh
+*/
+
+package org.firstinspires.ftc.teamcode.api;
+
+import com.qualcomm.hardware.lynx.LynxModule;
+import com.qualcomm.robotcore.hardware.DcMotor;
+
+public class BulkReadCache {
+
+    // Number of motor ports on a hub
+    public static final int PORTS = 4;
+
+    // Hub to read from
+    private Hub hub;
+
+    // Cached values for each port (positions and velocities are in raw encoder ticks)
+    private final int[] positions = new int[PORTS];
+    private final double[] velocities = new double[PORTS];
+    private final boolean[] busy = new boolean[PORTS];
+    // Modes aren't part of a bulk read, so they are cached when they are written
+    private final DcMotor.RunMode[] modes = new DcMotor.RunMode[PORTS];
+
+    // Whether the cached values need to be read again before they are used
+    private boolean stale = true;
+    // Oldest the cached values can get before they are read again, even without invalidate() (in nanoseconds, 0 to disable)
+    private long maxAge;
+    // Clock time of the last refresh
+    private long refreshTime;
+    private RobotClock clock = RobotClock.getDefault();
+    // Number of hub transactions made so far
+    private long transactions = 0;
+    // Distribution of the time each transaction takes (null when not monitored)
+    private LatencyHistogram readLatency = null;
+
+    // Cache that refreshes on invalidate() or after 10 ms, whichever comes first
+    public BulkReadCache(Hub hub){
+        this(hub, 10000000L);
+    }
+
+    // Cache with a custom maximum age (in nanoseconds)
+    public BulkReadCache(Hub hub, long maxAge){
+        this.hub = hub;
+        this.maxAge = maxAge;
+    }
+
+    // Cache for a REV Control/Expansion Hub
+    public BulkReadCache(LynxModule module){
+        this(new LynxHub(module));
+    }
+
+    // Measure the cache's age with a different clock
+    public synchronized void setClock(RobotClock clock){
+        this.clock = clock;
+        stale = true;
+    }
+
+    // Record how long every transaction takes as "<name> bulk read" (null to stop)
+    public synchronized void setLatencyMonitor(LatencyMonitor monitor, String name){
+        readLatency = monitor == null ? null : monitor.get(name + " bulk read");
+    }
+
+    // Route the motors' reads through this cache (ports are taken from the motor configuration)
+    public void attach(DcMotorX... motors){
+        for(DcMotorX motor : motors){
+            motor.setCache(this, motor.core.getPortNumber());
+        }
+    }
+
+    // Mark the cached values as out of date, the next read will refresh them
+    public synchronized void invalidate(){
+        stale = true;
+    }
+
+    // Read every port from the hub in one transaction
+    public synchronized void refresh(){
+        long start = clock.nanoTime();
+        hub.read(positions, velocities, busy);
+
+        refreshTime = clock.nanoTime();
+        if(readLatency != null) readLatency.record(refreshTime - start);
+        stale = false;
+        transactions++;
+    }
+
+    // Refresh if the cached values are out of date
+    private void ensureFresh(){
+        if(stale || (maxAge > 0 && clock.nanoTime() - refreshTime > maxAge)) refresh();
+    }
+
+    public synchronized int getPosition(int port){
+        ensureFresh();
+        return positions[port];
+    }
+
+    public synchronized double getVelocity(int port){
+        ensureFresh();
+        return velocities[port];
+    }
+
+    public synchronized boolean isBusy(int port){
+        ensureFresh();
+        return busy[port];
+    }
+
+    public synchronized DcMotor.RunMode getMode(int port){ return modes[port]; }
+
+    public synchronized void setMode(int port, DcMotor.RunMode mode){ modes[port] = mode; }
+
+    public void setMaxAge(long maxAge){ this.maxAge = maxAge; }
+
+    public long getTransactions(){ return transactions; }
+
+    // Anything that can read every motor port in a single transaction
+    public interface Hub {
+        // Fill in encoder positions (ticks), velocities (ticks/sec) and busy flags for every port
+        void read(int[] positions, double[] velocities, boolean[] busy);
+    }
+
+    // Bulk reads from a REV Control/Expansion Hub
+    public static class LynxHub implements Hub {
+        private LynxModule module;
+
+        public LynxHub(LynxModule module){
+            this.module = module;
+            // Readers that don't go through a cache still get fresh values (see the top of the file)
+            module.setBulkCachingMode(LynxModule.BulkCachingMode.AUTO);
+        }
+
+        public void read(int[] positions, double[] velocities, boolean[] busy){
+            // getBulkData() always makes a new transaction, whatever the caching mode
+            LynxModule.BulkData data = module.getBulkData();
+
+            for(int port = 0; port < positions.length; port++){
+                positions[port] = data.getMotorCurrentPosition(port);
+                velocities[port] = data.getMotorVelocity(port);
+                busy[port] = data.isMotorBusy(port);
+            }
+        }
+    }
+
+}
@@ -7,15 +7,33 @@ package org.firstinspires.ftc.teamcode.api;
 
 import org.firstinspires.ftc.robotcore.external.Telemetry;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class ControlledDrivetrain extends Drivetrain implements Runnable {
 
     // PID tuning parameters (9 total, 3 for each coordinate)
     public double[] Kp;
     public double[] Ki;
     public double[] Kd;
+    // Feedforward from the profiled setpoint, indexed by robot axis (forward, strafe, rotation)
+    // kS: static friction (applied in the direction of motion), kV: per unit velocity, kA: per unit acceleration
+    public double[] kS = new double[3];
+    public double[] kV = new double[3];
+    public double[] kA = new double[3];
+    // Largest output the I term of each coordinate can contribute (stops the integrals from winding up)
+    public double[] integralLimit = new double[]{0.3, 0.3, 0.3};
+    // Largest PID correction for each coordinate, the motors can't do more than full power anyways
+    public double[] outputLimit = new double[]{1, 1, 1};
+    // How quickly the integrals bleed off toward zero while the correction is saturated (fraction per second)
+    public double antiWindupGain = 5;
     // Time to wait between updates/cycles (in milliseconds)
     private int cycleTime;
     private int actualTime;
+    // Keeps the update loop on a fixed-rate schedule
+    public LoopScheduler scheduler;
+    // Source of loop timing, profile time and waits
+    private RobotClock clock = RobotClock.getDefault();
     // Time that each update actually takes (in seconds), used to compute integrals/derivatives wrt time
     private double dt;
 
@@ -26,12 +44,63 @@ public class ControlledDrivetrain extends Drivetrain implements Runnable {
     private double xThreshold;
     private double yThreshold;
     private double phiThreshold;
+    // Consecutive cycles the robot must stay within the thresholds to count as arrived
+    public int arrivalCycles = 3;
+
+    // Threads waiting for the robot to reach the current target
+    private final List<ArrivalFuture> arrivals = new ArrayList<>();
+
+    // Reused to read the pose each cycle, and when the setpoint changes (only touched while holding the lock)
+    private final MutablePose2d measuredPose = new MutablePose2d();
+    private final MutablePose2d commandPose = new MutablePose2d();
 
     // Setpoint
     public double xT;
     public double yT;
     public double phiT;
 
+    // Velocity/acceleration limits for profiled moves (distance units and radians)
+    public MotionProfile.Constraints translationConstraints = new MotionProfile.Constraints(100, 150, 600);
+    public MotionProfile.Constraints rotationConstraints = new MotionProfile.Constraints(Math.PI, 2*Math.PI, 8*Math.PI);
+
+    // Profiled move being followed (null when the setpoint is fixed)
+    private volatile MotionProfile translationProfile = null;
+    private MotionProfile rotationProfile = null;
+    // Where the profiled move started, and the direction it travels in
+    private double xStart, yStart, phiStart;
+    private double xDirection, yDirection;
+    private long profileStart;
+    private final double[] profileSample = new double[3];
+
+    // Path being followed (null when not following a path)
+    private volatile Path path = null;
+    // Distance along the path of the point closest to the robot
+    private volatile double pathProgress = 0;
+    // Speed the setpoint travels along the path
+    private double pathSpeed = 0;
+    // The setpoint is a point this far ahead of the robot on the path: lookaheadMin + lookaheadTime*speed, up to lookaheadMax
+    public double lookaheadMin = 15;
+    public double lookaheadMax = 45;
+    public double lookaheadTime = 0.3;
+    private final double[] pathSample = new double[5];
+    private final double[] velocity = new double[3];
+
+    // Velocity and acceleration of the setpoint (nonzero only while following a profile or path)
+    public double vxT, vyT, vphiT;
+    public double axT, ayT, aphiT;
+
+    // Relay auto-tuner driving one coordinate (null when not tuning)
+    private volatile RelayAutoTuner tuner = null;
+    private int tuningAxis;
+    private final double[] tunedGains = new double[3];
+
+    // What the D term differentiates (the error kicks whenever the target jumps, the measured pose doesn't)
+    public DerivativeMode derivativeMode = DerivativeMode.ERROR;
+    // Low-pass filters for each coordinate's D term (null when unfiltered)
+    private LowPassFilter[] derivativeFilters = null;
+    // Measured pose from the last cycle (used for derivative on measurement)
+    private double xL, yL, phiL;
+
     // Error values from the last cycle (used for computing error derivatives)
     public double ExL = 0;
     public double EyL = 0;
@@ -45,11 +114,28 @@ public class ControlledDrivetrain extends Drivetrain implements Runnable {
     // Whether the drivetrain should actively correct the robot's position
     private boolean active = false;
     // Whether the entire thread should continue running
-    private boolean isRunning = true;
+    private volatile boolean isRunning = true;
 
     // Odometry thread for tracking position
     public Odometry positionTracker;
 
+    // Whether odometry runs on its own thread or inside this loop (set before starting the thread)
+    public LoopMode loopMode = LoopMode.THREADED;
+    // Time each stage of the last fused cycle took (in nanoseconds), indexed by Stage
+    private final long[] stageTimes = new long[Stage.values().length];
+    // Time from reading the encoders to writing the motors in the last fused cycle (in nanoseconds)
+    private volatile long latency;
+    // Reused for each fused cycle's encoder readings
+    private final double[] encoders = new double[3];
+
+    // Motor commands from the last compute() (forward, rotation, strafe)
+    private double commandS, commandPhi, commandP;
+
+    // Logs every cycle's state (null when not recording)
+    private volatile FlightRecorder flightRecorder = null;
+    // Reused for each cycle's record
+    private final double[] flightRecord = new double[FlightRecorder.FIELDS];
+
     // Basic constructor (no tuning options or custom thresholds)
     public ControlledDrivetrain(DcMotorX mRF, DcMotorX mLF, DcMotorX mRB, DcMotorX mLB, Odometry positionTracker){
         this(
@@ -92,71 +178,356 @@ public class ControlledDrivetrain extends Drivetrain implements Runnable {
         this.cycleTime = cycleTime;
         // Initially approximate dt as cycle time in seconds (it will be measured later)
         this.dt = toSec(cycleTime);
+        this.scheduler = new LoopScheduler(cycleTime);
+
+        Pose pose = positionTracker.getPose();
+        xL = pose.x;
+        yL = pose.y;
+        phiL = pose.phi;
     }
 
     // Main PID Control Loop
-    public void update(){
-        long start = System.currentTimeMillis();
+    public synchronized void update(){
+        long start = clock.nanoTime();
+
+        compute();
+        apply();
 
-        // Error from target for each coordinate
-        double Ex =  xT - positionTracker.x;
-        double Ey = yT - positionTracker.y;
-        double Ephi = phiT - positionTracker.phi;
+        actualTime = (int) ((clock.nanoTime() - start)/1000000L);
+    }
+
+    // Work out the motor commands from the latest pose
+    public synchronized void compute(){
+        // Read the whole pose at once so every coordinate comes from the same odometry cycle
+        MutablePose2d pose = measuredPose;
+        long timestamp = positionTracker.getPose(pose);
+
+        // Move the setpoint along the path/profile
+        if(path != null) samplePath(pose);
+        else if(translationProfile != null) sampleProfile(clock.nanoTime());
+
+        // Error from target for each coordinate (heading error goes the short way around, the pose's heading is continuous)
+        double Ex =  xT - pose.x;
+        double Ey = yT - pose.y;
+        double Ephi = Angles.wrap(phiT - pose.phi);
+
+        // Let waiting threads know once the robot has settled on the target
+        if(!arrivals.isEmpty()) checkArrivals(Ex, Ey, Ephi);
 
         // Time derivative of each coordinate's error
-        double dExdt = (Ex - ExL)/dt;
-        double dEydt = (Ey - EyL)/dt;
-        double dEphidt = (Ephi - EphiL)/dt;
+        double dExdt, dEydt, dEphidt;
+        if(derivativeMode == DerivativeMode.MEASUREMENT){
+            // The setpoint's own motion is known exactly, so only the measured pose is differentiated
+            dExdt = vxT - (pose.x - xL)/dt;
+            dEydt = vyT - (pose.y - yL)/dt;
+            dEphidt = vphiT - (pose.phi - phiL)/dt;
+        }else{
+            dExdt = (Ex - ExL)/dt;
+            dEydt = (Ey - EyL)/dt;
+            // (wrapped so the error jumping between -pi and pi doesn't look like a huge derivative)
+            dEphidt = Angles.wrap(Ephi - EphiL)/dt;
+        }
+
+        // Smooth out encoder quantization noise
+        if(derivativeFilters != null){
+            dExdt = derivativeFilters[0].filter(dExdt, dt);
+            dEydt = derivativeFilters[1].filter(dEydt, dt);
+            dEphidt = derivativeFilters[2].filter(dEphidt, dt);
+        }
 
         // PID Correction that needs to be made to each coordinate
-        double Cx = Kp[0]*Ex + Ki[0]*IEx + Kd[0]*dExdt;
-        double Cy = Kp[1]*Ey + Ki[1]*IEy + Kd[1]*dEydt;
-        double Cphi = Kp[2]*Ephi + Ki[2]*IEphi + Kd[2]*dEphidt;
+        double Ux = Kp[0]*Ex + Ki[0]*IEx + Kd[0]*dExdt;
+        double Uy = Kp[1]*Ey + Ki[1]*IEy + Kd[1]*dEydt;
+        double Uphi = Kp[2]*Ephi + Ki[2]*IEphi + Kd[2]*dEphidt;
+
+        // While auto-tuning, the relay drives the coordinate being tuned (the others hold their position)
+        if(tuner != null){
+            double relay = tuner.update(tuningAxis == 0 ? Ex : tuningAxis == 1 ? Ey : Ephi, timestamp);
+
+            if(tuningAxis == 0) Ux = relay;
+            else if(tuningAxis == 1) Uy = relay;
+            else Uphi = relay;
+
+            if(tuner.isDone()) finishAutoTune();
+        }
+
+        // Limit each correction
+        double Cx = clamp(Ux, outputLimit[0]);
+        double Cy = clamp(Uy, outputLimit[1]);
+        double Cphi = clamp(Uphi, outputLimit[2]);
+
+        double sin = Math.sin(pose.phi);
+        double cos = Math.cos(pose.phi);
 
         // Speed at which the robot should move forward/in reverse (calculated from x and y corrections using a rotation matrix)
-        double dsdt = -Cx*Math.sin(positionTracker.phi) + Cy*Math.cos(positionTracker.phi);
+        double dsdt = -Cx*sin + Cy*cos;
         // Speed at which the robot should move sideways (strafe) (calculated from x and y corrections using a rotation matrix)
-        double dpdt = Cy*Math.sin(positionTracker.phi) + Cx*Math.cos(positionTracker.phi);
+        double dpdt = Cy*sin + Cx*cos;
         // Speed at which the robot should rotate (change its heading)
         double dphidt = Cphi;
 
-        // Drive the robot in the correct direction and at the correct speed
-        // Only correct the robot's position when active
-        if(active) drive(dsdt, dphidt, dpdt);
+        // Add feedforward for the motion the profile asks for (rotated into the robot's frame the same way)
+        dsdt += feedforward(0, -vxT*sin + vyT*cos, -axT*sin + ayT*cos);
+        dpdt += feedforward(1, vyT*sin + vxT*cos, ayT*sin + axT*cos);
+        dphidt += feedforward(2, vphiT, aphiT);
 
-        // Add to the error integrals
-        IEx += Ex*dt;
-        IEy += Ey*dt;
-        IEphi += Ephi*dt;
+        commandS = dsdt;
+        commandPhi = dphidt;
+        commandP = dpdt;
+
+        FlightRecorder recorder = flightRecorder;
+        if(recorder != null) record(recorder, pose, Ex, Ey, Ephi, dExdt, dEydt, dEphidt);
+
+        if(active){
+            // Add to the error integrals (frozen while inactive so they don't build up while the robot is driven by hand)
+            IEx = integrate(0, IEx, Ex, Cx - Ux);
+            IEy = integrate(1, IEy, Ey, Cy - Uy);
+            IEphi = integrate(2, IEphi, Ephi, Cphi - Uphi);
+        }
 
         // Save the current error values for the next cycle's derivative calculation
         ExL = Ex;
         EyL = Ey;
         EphiL = Ephi;
+        xL = pose.x;
+        yL = pose.y;
+        phiL = pose.phi;
+    }
 
-        actualTime = (int) (System.currentTimeMillis() - start);
+    // Log this cycle (the I terms use the integrals from before this cycle's update, like the correction did)
+    private void record(FlightRecorder recorder, MutablePose2d pose, double Ex, double Ey, double Ephi, double dExdt, double dEydt, double dEphidt){
+        double[] r = flightRecord;
+
+        r[FlightRecorder.Field.X.ordinal()] = pose.x;
+        r[FlightRecorder.Field.Y.ordinal()] = pose.y;
+        r[FlightRecorder.Field.PHI.ordinal()] = pose.phi;
+        r[FlightRecorder.Field.X_TARGET.ordinal()] = xT;
+        r[FlightRecorder.Field.Y_TARGET.ordinal()] = yT;
+        r[FlightRecorder.Field.PHI_TARGET.ordinal()] = phiT;
+        r[FlightRecorder.Field.X_ERROR.ordinal()] = Ex;
+        r[FlightRecorder.Field.Y_ERROR.ordinal()] = Ey;
+        r[FlightRecorder.Field.PHI_ERROR.ordinal()] = Ephi;
+
+        r[FlightRecorder.Field.X_P.ordinal()] = Kp[0]*Ex;
+        r[FlightRecorder.Field.X_I.ordinal()] = Ki[0]*IEx;
+        r[FlightRecorder.Field.X_D.ordinal()] = Kd[0]*dExdt;
+        r[FlightRecorder.Field.Y_P.ordinal()] = Kp[1]*Ey;
+        r[FlightRecorder.Field.Y_I.ordinal()] = Ki[1]*IEy;
+        r[FlightRecorder.Field.Y_D.ordinal()] = Kd[1]*dEydt;
+        r[FlightRecorder.Field.PHI_P.ordinal()] = Kp[2]*Ephi;
+        r[FlightRecorder.Field.PHI_I.ordinal()] = Ki[2]*IEphi;
+        r[FlightRecorder.Field.PHI_D.ordinal()] = Kd[2]*dEphidt;
+
+        // Same mix as drive(), which apply() sends
+        double scale = active ? 1 : 0;
+        r[FlightRecorder.Field.POWER_RF.ordinal()] = scale*(commandS + commandPhi - commandP);
+        r[FlightRecorder.Field.POWER_LF.ordinal()] = scale*(commandS - commandPhi + commandP);
+        r[FlightRecorder.Field.POWER_RB.ordinal()] = scale*(commandS + commandPhi + commandP);
+        r[FlightRecorder.Field.POWER_LB.ordinal()] = scale*(commandS - commandPhi - commandP);
+
+        recorder.record(clock.nanoTime(), r);
     }
 
-    // Set a target position
+    // Start/stop logging every cycle (pass null to stop), the recorder's drain thread is run separately
+    public void setFlightRecorder(FlightRecorder recorder){ this.flightRecorder = recorder; }
+
+    // Drive the robot in the correct direction and at the correct speed from the last compute()
+    // Only correct the robot's position when active
+    public synchronized void apply(){
+        if(active) drive(commandS, commandPhi, commandP);
+    }
+
+    // Set a target position (also takes a {x, y, phi} array)
     public void setPosition(double... coords){
-        xT = coords[0];
-        yT = coords[1];
-        phiT = coords[2];
+        setPosition(coords[0], coords[1], coords[2]);
+    }
+
+    public synchronized void setPosition(double x, double y, double phi){
+        // A fixed setpoint replaces any profiled move or path (or auto-tune)
+        tuner = null;
+        translationProfile = null;
+        rotationProfile = null;
+        path = null;
+        setTarget(x, y, phi, 0, 0, 0, 0, 0, 0);
+
+        resetErrors();
+        cancelArrivals();
+    }
+
+    public void setPosition(Pose2d target){
+        setPosition(target.x, target.y, target.phi);
+    }
+
+    public void setPosition(MutablePose2d target){
+        setPosition(target.x, target.y, target.phi);
+    }
+
+    // Travel to a target position along a motion profile (the setpoint moves smoothly instead of jumping)
+    public synchronized void setProfiledPosition(double x, double y, double phi){
+        tuner = null;
+        path = null;
+        MutablePose2d pose = commandPose;
+        positionTracker.getPose(pose);
+
+        xStart = pose.x;
+        yStart = pose.y;
+        phiStart = pose.phi;
+
+        double distance = Math.hypot(x - pose.x, y - pose.y);
+        xDirection = distance > 0 ? (x - pose.x)/distance : 0;
+        yDirection = distance > 0 ? (y - pose.y)/distance : 0;
+
+        translationProfile = new MotionProfile(distance, translationConstraints);
+        // Turn whichever way is shorter
+        rotationProfile = new MotionProfile(Angles.wrap(phi - pose.phi), rotationConstraints);
+        profileStart = clock.nanoTime();
+
+        setTarget(xStart, yStart, phiStart, 0, 0, 0, 0, 0, 0);
+        resetErrors();
+        cancelArrivals();
+    }
+
+    public void setProfiledPosition(Pose2d target){
+        setProfiledPosition(target.x, target.y, target.phi);
+    }
+
+    public void setProfiledPosition(MutablePose2d target){
+        setProfiledPosition(target.x, target.y, target.phi);
+    }
+
+    // Move the setpoint to where the profile should be at a clock time
+    private void sampleProfile(long time){
+        double t = (time - profileStart)/1e9;
+
+        translationProfile.sample(t, profileSample);
+        double s = profileSample[0], v = profileSample[1], a = profileSample[2];
+
+        rotationProfile.sample(t, profileSample);
+
+        setTarget(
+                xStart + xDirection*s, yStart + yDirection*s, phiStart + profileSample[0],
+                xDirection*v, yDirection*v, profileSample[1],
+                xDirection*a, yDirection*a, profileSample[2]
+        );
+
+        // Both profiles are done, hold the final position
+        if(t >= translationProfile.getDuration() && t >= rotationProfile.getDuration()){
+            translationProfile = null;
+            rotationProfile = null;
+        }
+    }
+
+    // Follow a path without stopping at its waypoints (pure pursuit), holding the last waypoint at the end
+    public synchronized void followPath(Path path){
+        tuner = null;
+        translationProfile = null;
+        rotationProfile = null;
+
+        MutablePose2d pose = commandPose;
+        positionTracker.getPose(pose);
+        positionTracker.getVelocity(velocity);
+
+        this.path = path;
+        pathProgress = path.project(pose.x, pose.y, 0, path.getLength());
+        pathSpeed = Math.hypot(velocity[0], velocity[1]);
+
+        samplePath(pose);
+        resetErrors();
+        cancelArrivals();
+    }
+
+    // Move the setpoint to the lookahead point ahead of the robot
+    private void samplePath(MutablePose2d pose){
+        positionTracker.getVelocity(velocity);
+        double speed = Math.hypot(velocity[0], velocity[1]);
+
+        // The robot can't have gotten further than the lookahead point plus a cycle of travel since the last search
+        pathProgress = path.project(pose.x, pose.y, pathProgress, lookaheadMax + speed*dt);
+        double remaining = path.getLength() - pathProgress;
+
+        // Speed up at the acceleration limit, and slow down in time to stop at the end
+        double maxAcceleration = translationConstraints.maxAcceleration;
+        pathSpeed = Math.min(pathSpeed + maxAcceleration*dt, translationConstraints.maxVelocity);
+        pathSpeed = Math.min(pathSpeed, Math.sqrt(2*maxAcceleration*remaining));
+
+        // Look further ahead at higher speeds so the robot doesn't weave around the path
+        double lookahead = Math.min(lookaheadMin + lookaheadTime*speed, lookaheadMax);
+        path.sample(pathProgress + lookahead, pathSample);
+
+        // Close enough to the end that the setpoint is the last waypoint, hold it like a regular setpoint
+        if(remaining <= lookaheadMin){
+            path.sample(path.getLength(), pathSample);
+            setTarget(pathSample[0], pathSample[1], pathSample[2], 0, 0, 0, 0, 0, 0);
+            path = null;
+            return;
+        }
+
+        setTarget(
+                pathSample[0], pathSample[1], pathSample[2],
+                pathSample[3]*pathSpeed, pathSample[4]*pathSpeed, 0,
+                0, 0, 0
+        );
+    }
+
+    // Distance travelled along the current (or last) path
+    public double getPathProgress(){ return pathProgress; }
+
+    // Whether a path is still being followed
+    public boolean isFollowingPath(){ return path != null; }
+
+    // Current setpoint, and how fast it's moving (field frame)
+    public synchronized void getTarget(MutablePose2d out){
+        out.set(xT, yT, phiT);
+    }
+
+    public synchronized void getTargetVelocity(MutableTwist2d out){
+        out.set(vxT, vyT, vphiT);
+    }
+
+    private void setTarget(double x, double y, double phi, double vx, double vy, double vphi, double ax, double ay, double aphi){
+        xT = x;
+        yT = y;
+        phiT = phi;
+        vxT = vx;
+        vyT = vy;
+        vphiT = vphi;
+        axT = ax;
+        ayT = ay;
+        aphiT = aphi;
+    }
 
+    // Start the error derivatives/integrals over for a new setpoint
+    private void resetErrors(){
         // Get initial error measurements
-        ExL = xT - positionTracker.x;
-        EyL = yT - positionTracker.y;
-        EphiL = phiT - positionTracker.phi;
+        MutablePose2d pose = commandPose;
+        positionTracker.getPose(pose);
+        ExL = xT - pose.x;
+        EyL = yT - pose.y;
+        EphiL = Angles.wrap(phiT - pose.phi);
+        xL = pose.x;
+        yL = pose.y;
+        phiL = pose.phi;
+
+        if(derivativeFilters != null){
+            for(int i = 0; i < derivativeFilters.length; i++) derivativeFilters[i].reset(0);
+        }
 
         IEx = 0;
         IEy = 0;
         IEphi = 0;
     }
 
+    // Whether a profiled move is still in progress
+    public boolean isProfileActive(){ return translationProfile != null; }
+
     public boolean isBusy(double xThresh, double yThresh, double phiThres){
-        double Ex = xT - positionTracker.x;
-        double Ey = yT - positionTracker.y;
-        double Ephi = phiT - positionTracker.phi;
+        // The setpoint is still moving
+        if(isProfileActive() || isFollowingPath()) return true;
+
+        Pose pose = positionTracker.getPose();
+        double Ex = xT - pose.x;
+        double Ey = yT - pose.y;
+        double Ephi = Angles.wrap(phiT - pose.phi);
 
         return Math.abs(Ex) > xThresh || Math.abs(Ey) > yThresh || Math.abs(Ephi) > phiThres;
     }
@@ -165,39 +536,232 @@ public class ControlledDrivetrain extends Drivetrain implements Runnable {
         return isBusy(xThreshold, yThreshold, phiThreshold);
     }
 
+    // Future that completes when the robot settles on the current target (cancelled if the target changes first)
+    public synchronized ArrivalFuture getArrival(double xThresh, double yThresh, double phiThresh){
+        ArrivalFuture arrival = new ArrivalFuture(xThresh, yThresh, phiThresh, arrivalCycles, clock);
+        // Nothing will complete it if the controller isn't running
+        if(!isRunning) arrival.cancel(false);
+        else arrivals.add(arrival);
+
+        return arrival;
+    }
+
+    public ArrivalFuture getArrival(){
+        return getArrival(xThreshold, yThreshold, phiThreshold);
+    }
+
+    // Block (without using the CPU) until the robot arrives or timeout milliseconds pass (0 waits forever)
+    // Returns whether the robot arrived
+    public boolean awaitArrival(double xThresh, double yThresh, double phiThresh, long timeout) throws InterruptedException {
+        ArrivalFuture arrival = getArrival(xThresh, yThresh, phiThresh);
+
+        try {
+            return arrival.await(timeout);
+        } finally {
+            // Don't leave the controller checking a future nobody is waiting on
+            arrival.cancel(false);
+        }
+    }
+
+    public boolean awaitArrival(long timeout) throws InterruptedException {
+        return awaitArrival(xThreshold, yThreshold, phiThreshold, timeout);
+    }
+
+    private void checkArrivals(double Ex, double Ey, double Ephi){
+        boolean settling = isProfileActive() || isFollowingPath();
+
+        for(int i = arrivals.size() - 1; i >= 0; i--){
+            if(arrivals.get(i).update(Ex, Ey, Ephi, settling)) arrivals.remove(i);
+        }
+    }
+
+    private synchronized void cancelArrivals(){
+        for(int i = 0; i < arrivals.size(); i++) arrivals.get(i).cancel(false);
+        arrivals.clear();
+    }
+
+    // Tune a coordinate's gains (0 = x, 1 = y, 2 = phi) with a relay test around the current position
+    // The gains are updated when the tuner is done (save them with getGains())
+    public synchronized void startAutoTune(int axis, RelayAutoTuner tuner){
+        positionTracker.getPose(commandPose);
+        setPosition(commandPose.x, commandPose.y, commandPose.phi);
+
+        tuningAxis = axis;
+        this.tuner = tuner;
+    }
+
+    // Whether an auto-tune is still running
+    public boolean isAutoTuning(){ return tuner != null; }
+
+    private void finishAutoTune(){
+        tuner.getGains(tunedGains);
+        Kp[tuningAxis] = tunedGains[0];
+        Ki[tuningAxis] = tunedGains[1];
+        Kd[tuningAxis] = tunedGains[2];
+
+        tuner = null;
+        // The relay wound up the integral, start clean with the new gains
+        resetErrors();
+    }
+
+    // Copy of the current gains
+    public synchronized ControllerGains getGains(){
+        return new ControllerGains(Kp.clone(), Ki.clone(), Kd.clone());
+    }
+
+    public synchronized void setGains(ControllerGains gains){
+        System.arraycopy(gains.Kp, 0, Kp, 0, 3);
+        System.arraycopy(gains.Ki, 0, Ki, 0, 3);
+        System.arraycopy(gains.Kd, 0, Kd, 0, 3);
+    }
+
+    // Run the control loop, profiles and arrival waits (and the wheels and odometry) on a different clock
+    @Override
+    public synchronized void setClock(RobotClock clock){
+        super.setClock(clock);
+        this.clock = clock;
+        scheduler.setClock(clock);
+        positionTracker.setClock(clock);
+    }
+
+    public RobotClock getClock(){ return clock; }
+
+    // Also record the control loop's timing ("control period/work") and odometry's (see Odometry.setLatencyMonitor())
+    @Override
+    public void setLatencyMonitor(LatencyMonitor monitor){
+        super.setLatencyMonitor(monitor);
+        scheduler.setLatencyMonitor(monitor, "control");
+        positionTracker.setLatencyMonitor(monitor);
+    }
+
+    // Low-pass filter the D terms (cutoff in Hz), a cutoff of 0 turns filtering off
+    public synchronized void setDerivativeFilter(LowPassFilter.Type type, double cutoff){
+        if(cutoff <= 0){
+            derivativeFilters = null;
+            return;
+        }
+
+        derivativeFilters = new LowPassFilter[]{
+                new LowPassFilter(type, cutoff),
+                new LowPassFilter(type, cutoff),
+                new LowPassFilter(type, cutoff)
+        };
+    }
+
+    // Feedforward output for a robot axis moving at a target velocity/acceleration
+    private double feedforward(int axis, double velocity, double acceleration){
+        return kS[axis]*Math.signum(velocity) + kV[axis]*velocity + kA[axis]*acceleration;
+    }
+
+    // Next value of a coordinate's error integral
+    private double integrate(int i, double integral, double error, double saturation){
+        if(Ki[i] == 0) return 0;
+
+        if(saturation == 0){
+            integral += error*dt;
+        }else{
+            // While the output is clipped, don't integrate any further into the limit...
+            if(Ki[i]*error*saturation > 0) integral += error*dt;
+            // ...and bleed off whatever the I term was adding to the clipped output (only down to zero, so a long
+            // saturated approach driven by the P term can't wind the integral up against the error)
+            if(Ki[i]*integral*saturation < 0) integral -= integral*Math.min(antiWindupGain*dt, 1);
+        }
+
+        // Keep the I term's contribution within its limit
+        double limit = Math.abs(integralLimit[i]/Ki[i]);
+        return clamp(integral, limit);
+    }
+
+    private static double clamp(double value, double limit){
+        return Math.max(-limit, Math.min(limit, value));
+    }
+
     private double toSec(int millis){
         return 1.0*millis/(1000.0);
     }
 
     // Run the update() loop continuously
     public void run(){
+        if(loopMode == LoopMode.FUSED){
+            runFused();
+            return;
+        }
+
         // Track position on a separate thread
-        Thread odometryThread = new Thread(positionTracker);
+        Thread odometryThread = clock.newThread(positionTracker);
         odometryThread.start();
 
+        scheduler.start();
+
         // Run the thread indefinitely
         while(isRunning){
             update();
 
-            if(actualTime < cycleTime){
-                try {
-                    // Wait for about a hardware cycle
-                    Thread.sleep(cycleTime - actualTime);
-                }catch(Exception e){
-                    e.printStackTrace();
-                }
-
-                dt = toSec(cycleTime);
-            }else{
-                dt = toSec(actualTime);
+            try {
+                // Wait for the next cycle's deadline
+                scheduler.sync();
+            }catch(Exception e){
+                e.printStackTrace();
             }
+
+            // Use the measured time between cycles for integrals/derivatives
+            dt = scheduler.getDt();
+        }
+    }
+
+    // Run odometry and control in one loop, so each cycle acts on a pose measured moments before instead of up to an odometry cycle ago
+    private void runFused(){
+        positionTracker.startTracking();
+
+        scheduler.start();
+
+        while(isRunning){
+            // Sense: bulk read the dead wheels
+            long senseStart = clock.nanoTime();
+            positionTracker.readEncoders(encoders);
+
+            // Update odometry with the fresh readings
+            long odometryStart = clock.nanoTime();
+            positionTracker.update(encoders[0], encoders[1], encoders[2], senseStart);
+
+            // Compute the PID/feedforward commands
+            long computeStart = clock.nanoTime();
+            compute();
+
+            // Act: write the motors
+            long actStart = clock.nanoTime();
+            apply();
+            long end = clock.nanoTime();
+
+            stageTimes[Stage.SENSE.ordinal()] = odometryStart - senseStart;
+            stageTimes[Stage.ODOMETRY.ordinal()] = computeStart - odometryStart;
+            stageTimes[Stage.COMPUTE.ordinal()] = actStart - computeStart;
+            stageTimes[Stage.ACT.ordinal()] = end - actStart;
+            latency = end - senseStart;
+
+            actualTime = (int) (latency/1000000L);
+
+            try {
+                scheduler.sync();
+            }catch(Exception e){
+                e.printStackTrace();
+            }
+
+            dt = scheduler.getDt();
         }
     }
 
+    // Time a stage of the last fused cycle took (in nanoseconds)
+    public long getStageTime(Stage stage){ return stageTimes[stage.ordinal()]; }
+
+    // Time from reading the encoders to writing the motors in the last fused cycle (in nanoseconds)
+    public long getLatency(){ return latency; }
+
     // Stop the controller & odometry code from running
     public void stopController(){
         positionTracker.stop();
         isRunning = false;
+        cancelArrivals();
     }
 
     // Activate/deactive position correction
@@ -205,4 +769,25 @@ public class ControlledDrivetrain extends Drivetrain implements Runnable {
 
     // Show whether positon correction is active
     public boolean getActive(){ return active; }
+
+    // How odometry and control are scheduled
+    public static enum LoopMode {
+        // Odometry and control each run on their own thread
+        THREADED,
+        // One thread: read encoders, update odometry, compute, write motors
+        FUSED
+    }
+
+    // Signal the D term is computed from
+    public static enum DerivativeMode {
+        // Derivative of the error (reacts to the target moving as well as the robot)
+        ERROR,
+        // Derivative of the measured pose, plus the setpoint's planned velocity (no kick when the target jumps)
+        MEASUREMENT
+    }
+
+    // Stages of a fused cycle, in the order they run
+    public static enum Stage {
+        SENSE, ODOMETRY, COMPUTE, ACT
+    }
 }
@@ -0,0 +1,107 @@
+/*
+Controller Gains
+ControlledDrivetrain PID gains that can be saved to and loaded from a properties file (see RelayAutoTuner for finding them)
+*/
+
+package org.firstinspires.ftc.teamcode.api;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+public class ControllerGains {
+
+    // Where the robot controller keeps the tuned gains
+    public static final File DEFAULT_FILE = new File("/sdcard/FIRST/drivetrain_pid.properties");
+
+    // Names of the coordinates in the file
+    private static final String[] AXES = new String[]{"x", "y", "phi"};
+
+    // Gains for each coordinate (x, y, phi)
+    public double[] Kp;
+    public double[] Ki;
+    public double[] Kd;
+
+    public ControllerGains(double[] Kp, double[] Ki, double[] Kd){
+        this.Kp = Kp;
+        this.Ki = Ki;
+        this.Kd = Kd;
+    }
+
+    // Load saved gains
+    public static ControllerGains load(File file) throws IOException {
+        Properties properties = new Properties();
+        InputStream in = new FileInputStream(file);
+
+        try {
+            properties.load(in);
+        } finally {
+            in.close();
+        }
+
+        ControllerGains gains = new ControllerGains(new double[3], new double[3], new double[3]);
+
+        for(int i = 0; i < AXES.length; i++){
+            gains.Kp[i] = getDouble(properties, "Kp." + AXES[i]);
+            gains.Ki[i] = getDouble(properties, "Ki." + AXES[i]);
+            gains.Kd[i] = getDouble(properties, "Kd." + AXES[i]);
+        }
+
+        return gains;
+    }
+
+    // Load saved gains, or fall back to hand-tuned gains if there isn't a usable file
+    public static ControllerGains load(File file, ControllerGains fallback){
+        if(file.exists()){
+            try {
+                return load(file);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+
+        return fallback;
+    }
+
+    // Save the gains
+    public void save(File file) throws IOException {
+        Properties properties = new Properties();
+
+        for(int i = 0; i < AXES.length; i++){
+            properties.setProperty("Kp." + AXES[i], Double.toString(Kp[i]));
+            properties.setProperty("Ki." + AXES[i], Double.toString(Ki[i]));
+            properties.setProperty("Kd." + AXES[i], Double.toString(Kd[i]));
+        }
+
+        OutputStream out = new FileOutputStream(file);
+
+        try {
+            properties.store(out, "Drivetrain PID gains");
+        } finally {
+            out.close();
+        }
+    }
+
+    private static double getDouble(Properties properties, String key) throws IOException {
+        String value = properties.getProperty(key);
+        if(value == null) throw new IOException("Missing " + key + " in gains file");
+
+        return Double.parseDouble(value);
+    }
+
+    public String toString(){
+        StringBuilder builder = new StringBuilder();
+
+        for(int i = 0; i < AXES.length; i++){
+            if(i > 0) builder.append(' ');
+            builder.append(AXES[i]).append(": Kp=").append(Kp[i]).append(" Ki=").append(Ki[i]).append(" Kd=").append(Kd[i]);
+        }
+
+        return builder.toString();
+    }
+
+}
@@ -6,6 +6,7 @@ Visit https://www.notion.so/DcMotorX-6f78a2bd9f144c5791de8fef8621e37e for docume
 package org.firstinspires.ftc.teamcode.api;
 
 import com.qualcomm.robotcore.hardware.DcMotor;
+import com.qualcomm.robotcore.hardware.DcMotorEx;
 import com.qualcomm.robotcore.hardware.DcMotorSimple;
 
 public class DcMotorX {
@@ -20,6 +21,37 @@ public class DcMotorX {
     private double lastPosition = 0;
     private double currentPosition = 0;
 
+    // Shared bulk read cache for the motor's hub (null to read the motor directly)
+    private BulkReadCache cache = null;
+    // Port the motor is plugged into on the cached hub
+    private int port;
+
+    // Power writes within this much of the last power sent are skipped (each write is a blocking hub transaction)
+    public double powerEpsilon = 0.005;
+    // Last power sent to the motor (NaN when unknown, so the next write always goes through)
+    private double lastPower = Double.NaN;
+    // Number of power writes sent to the hub and skipped
+    private volatile long powerWrites = 0;
+    private volatile long skippedWrites = 0;
+    // Clock used for blocking moves and the write rate
+    private RobotClock clock = RobotClock.getDefault();
+    // Skipped writes per second, measured over about a second at a time
+    private long rateStart = clock.nanoTime();
+    private long rateSkipped = 0;
+    private double savedRate = 0;
+
+    // Scales raw power for battery voltage (null for no compensation)
+    private VoltageCompensator compensator = null;
+    // Whether the current mode takes raw power (the hub regulates the others itself)
+    private boolean compensated = false;
+
+    // Distributions of the time hub reads and writes take (null when not monitored)
+    private LatencyHistogram readLatency = null;
+    private LatencyHistogram writeLatency = null;
+
+    // How often blocking moves check whether they're done (in milliseconds)
+    static final int POLL_INTERVAL = 5;
+
     // Initialize motor without using encoders
     public DcMotorX(DcMotor motor){
         this(motor, 0, 0);
@@ -42,41 +74,143 @@ public class DcMotorX {
         return distancePerRev * encoderPosition / ticksPerRev;
     }
 
+    // Read encoder values through a shared bulk read cache
+    public void setCache(BulkReadCache cache, int port){
+        this.cache = cache;
+        this.port = port;
+    }
+
+    // Make the next read go back to the hub (call once per control cycle)
+    public void invalidateCache(){
+        if(cache != null) cache.invalidate();
+    }
+
+    // Get the raw encoder position, from the cache if there is one
+    private int readEncoder(){
+        LatencyHistogram latency = readLatency;
+        long start = startCall(latency);
+
+        int position;
+        if(cache == null){
+            position = core.getCurrentPosition();
+        }else{
+            // Bulk reads aren't adjusted for direction the way getCurrentPosition() is
+            position = cache.getPosition(port);
+            if(isReversed()) position = -position;
+        }
+
+        endCall(latency, start);
+        return position;
+    }
+
+    private boolean isReversed(){
+        return core.getDirection() == DcMotorSimple.Direction.REVERSE;
+    }
+
+    // Set the run mode, remembering it so it doesn't have to be read back from the hub
+    private void setMode(DcMotor.RunMode mode){
+        LatencyHistogram latency = writeLatency;
+        long start = startCall(latency);
+        core.setMode(mode);
+        endCall(latency, start);
+        if(cache != null) cache.setMode(port, mode);
+
+        // Power means something different in the new mode
+        invalidatePower();
+        compensated = compensator != null && mode == DcMotor.RunMode.RUN_WITHOUT_ENCODER;
+    }
+
+    // Scale raw power for battery voltage (null to turn it off)
+    public void setVoltageCompensator(VoltageCompensator compensator){
+        this.compensator = compensator;
+        compensated = compensator != null && getMode() == DcMotor.RunMode.RUN_WITHOUT_ENCODER;
+    }
+
+    // Wait on a different clock in blocking moves
+    public synchronized void setClock(RobotClock clock){
+        this.clock = clock;
+        rateStart = clock.nanoTime();
+    }
+
+    public RobotClock getClock(){ return clock; }
+
+    // Record how long every hub read and write takes, as "<name> read" and "<name> write" (null to stop)
+    // Reads through a bulk read cache include any refresh they trigger
+    public void setLatencyMonitor(LatencyMonitor monitor, String name){
+        readLatency = monitor == null ? null : monitor.get(name + " read");
+        writeLatency = monitor == null ? null : monitor.get(name + " write");
+    }
+
+    // Start timing a hub call (only when it's being recorded)
+    long startCall(LatencyHistogram latency){
+        return latency == null ? 0 : clock.nanoTime();
+    }
+
+    void endCall(LatencyHistogram latency, long start){
+        if(latency != null) latency.record(clock.nanoTime() - start);
+    }
+
+    // Get the run mode, from the cache if it is known
+    public DcMotor.RunMode getMode(){
+        if(cache != null){
+            DcMotor.RunMode mode = cache.getMode(port);
+            if(mode != null) return mode;
+        }
+
+        LatencyHistogram latency = readLatency;
+        long start = startCall(latency);
+        DcMotor.RunMode mode = core.getMode();
+        endCall(latency, start);
+        return mode;
+    }
+
     // Set motor to run at a PID-controlled constant velocity
     public void controlVelocity(){
-        core.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
+        setMode(DcMotor.RunMode.RUN_USING_ENCODER);
     }
 
     // Set motor to run to positions with built-in PID controller
     public void controlPosition(){
-        core.setTargetPosition(0);
-        core.setMode(DcMotor.RunMode.RUN_TO_POSITION);
+        writeTarget(0);
+        setMode(DcMotor.RunMode.RUN_TO_POSITION);
     }
 
     // Reset the motor's encoder
     public void resetEncoder(){
-        core.setMode(DcMotor.RunMode.STOP_AND_RESET_ENCODER);
+        setMode(DcMotor.RunMode.STOP_AND_RESET_ENCODER);
     }
 
     // Set the motor run at a set power, regardless of encoder input
     public void runWithoutEncoder(){
-        core.setMode(DcMotor.RunMode.RUN_WITHOUT_ENCODER);
+        setMode(DcMotor.RunMode.RUN_WITHOUT_ENCODER);
     }
 
     // Switch motor's default direction
     public void reverse(){
         DcMotorSimple.Direction direction = core.getDirection();
 
+        LatencyHistogram latency = writeLatency;
+        long start = startCall(latency);
+
         if(direction.equals(DcMotorSimple.Direction.REVERSE)){
             core.setDirection(DcMotorSimple.Direction.FORWARD);
         }else{
             core.setDirection(DcMotorSimple.Direction.REVERSE);
         }
+
+        endCall(latency, start);
+
+        // The same power now turns the other way
+        invalidatePower();
     }
 
     // Get motor power (use in runWithoutEncoder mode)
     public double getPower(){
-        return core.getPower();
+        LatencyHistogram latency = readLatency;
+        long start = startCall(latency);
+        double power = core.getPower();
+        endCall(latency, start);
+        return power;
     }
 
     // Get motor velocity (use in controlVelocity mode)
@@ -84,15 +218,101 @@ public class DcMotorX {
 
     // Set motor power (use in runWithoutEncoder mode)
     public void setPower(double power){
+        writePower(compensate(power), false);
+    }
+
+    // Power to send for a commanded power (scaled for battery voltage when taking raw power)
+    double compensate(double power){
+        if(!compensated) return power;
+        return Math.max(-1, Math.min(1, power*compensator.getScale()));
+    }
+
+    // Whether a power is different enough from the last one sent to need a write
+    public synchronized boolean isPowerChanged(double power){
+        return isPowerChanged(power, powerEpsilon);
+    }
+
+    private boolean isPowerChanged(double power, double epsilon){
+        // Always send an exact stop, and always write when the last power is unknown (NaN)
+        if(power == 0) return lastPower != 0;
+        return !(Math.abs(power - lastPower) <= epsilon);
+    }
+
+    // Send a power to the hub unless it's already there (exact only skips identical powers, otherwise within powerEpsilon)
+    synchronized void writePower(double power, boolean exact){
+        if(!isPowerChanged(power, exact ? 0 : powerEpsilon)){
+            skippedWrites++;
+            return;
+        }
+
+        LatencyHistogram latency = writeLatency;
+        long start = startCall(latency);
         core.setPower(power);
+        endCall(latency, start);
+
+        lastPower = power;
+        powerWrites++;
+    }
+
+    // Forget the last power sent, so the next write goes through (use after touching core directly)
+    public synchronized void invalidatePower(){
+        lastPower = Double.NaN;
+    }
+
+    // Number of power writes sent to the hub
+    public long getPowerWrites(){ return powerWrites; }
+
+    // Number of power writes skipped because the motor already had that power
+    public long getSkippedWrites(){ return skippedWrites; }
+
+    // Hub writes saved per second (updated about once a second)
+    public synchronized double getSavedWritesPerSecond(){
+        long now = clock.nanoTime();
+        double elapsed = (now - rateStart)/1e9;
+
+        if(elapsed >= 1){
+            long skipped = skippedWrites;
+            savedRate = (skipped - rateSkipped)/elapsed;
+            rateSkipped = skipped;
+            rateStart = now;
+        }
+
+        return savedRate;
     }
 
     // Get current motor position
     public double getPosition(){
-        currentPosition = getDistanceFrom(core.getCurrentPosition());
+        currentPosition = getDistanceFrom(readEncoder());
         return currentPosition;
     }
 
+    // Get the encoder's measured velocity (distance per second)
+    public double getEncoderVelocity(){
+        LatencyHistogram latency = readLatency;
+        long start = startCall(latency);
+        double ticksPerSecond;
+
+        if(cache == null){
+            ticksPerSecond = ((DcMotorEx) core).getVelocity();
+        }else{
+            ticksPerSecond = cache.getVelocity(port);
+            if(isReversed()) ticksPerSecond = -ticksPerSecond;
+        }
+
+        endCall(latency, start);
+
+        return distancePerRev * ticksPerSecond / ticksPerRev;
+    }
+
+    // Check whether the motor is still running to its target position
+    public boolean isBusy(){
+        LatencyHistogram latency = readLatency;
+        long start = startCall(latency);
+        boolean busy = cache == null ? core.isBusy() : cache.isBusy(port);
+        endCall(latency, start);
+        return busy;
+    }
+
     // Get motor position with direction swapped if reversed
     public double getPositionForward(){
         if(core.getDirection() == DcMotorSimple.Direction.REVERSE) return -getPosition();
@@ -113,13 +333,13 @@ public class DcMotorX {
 
     // Set constant velocity to run at (use in controlVelocity mode)
     public void setVelocity(double velocity){
-        core.setPower(velocity);
+        writePower(velocity, false);
     }
 
     // Set position to run to, at a particular speed (use in controlPosition mode, will start traveling to position)
     public void setPosition(double position, double speed){
-        core.setTargetPosition(getEncoderPosition(position));
-        core.setPower(speed);
+        writeTarget(getEncoderPosition(position));
+        writePower(speed, false);
     }
 
     // Set target displacement from current position (use in controlPosition mode, will start traveling to position)
@@ -130,11 +350,23 @@ public class DcMotorX {
     // Set target position and travel to it
     public void goToPosition(double position, double speed){
         // Set motor to controlPosition mode if this hasn't been done already
-        if(!core.getMode().equals(DcMotor.RunMode.RUN_TO_POSITION)) controlPosition();
+        if(!getMode().equals(DcMotor.RunMode.RUN_TO_POSITION)) controlPosition();
         setPosition(position, speed);
 
         // isBusy returns false once core.getPosition() ≈≈ core.getTargetPosition()
-        while(core.isBusy());
+        while(isBusy() && pollWait());
+    }
+
+    // Sleep between checks in blocking moves so they don't hog a core
+    // Returns false (and keeps the interrupt flag set) if the thread is interrupted, e.g. when an OpMode is stopped
+    boolean pollWait(){
+        try {
+            clock.sleep(POLL_INTERVAL);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
     }
 
     // Set target displacement and travel to it
@@ -159,20 +391,37 @@ public class DcMotorX {
 
     // Get current target position
     public double getTargetPosition(){
-        return getDistanceFrom(core.getTargetPosition());
+        LatencyHistogram latency = readLatency;
+        long start = startCall(latency);
+        int target = core.getTargetPosition();
+        endCall(latency, start);
+        return getDistanceFrom(target);
+    }
+
+    // Send a target position (in ticks) to the hub
+    private void writeTarget(int target){
+        LatencyHistogram latency = writeLatency;
+        long start = startCall(latency);
+        core.setTargetPosition(target);
+        endCall(latency, start);
     }
 
     // Set the motor to either float or brake when given zero power
     public void setBrake(boolean brake){
+        LatencyHistogram latency = writeLatency;
+        long start = startCall(latency);
+
         if(brake){
             core.setZeroPowerBehavior(DcMotor.ZeroPowerBehavior.BRAKE);
         }else{
             core.setZeroPowerBehavior(DcMotor.ZeroPowerBehavior.FLOAT);
         }
+
+        endCall(latency, start);
     }
 
     // Set a target position for the motor
-    protected void setTargetPosition(double targetPosition){ core.setTargetPosition(getEncoderPosition(targetPosition)); }
+    protected void setTargetPosition(double targetPosition){ writeTarget(getEncoderPosition(targetPosition)); }
 
     // Set a target displacement for the motor
     protected void setTargetDistance(double targetDistance){ setTargetPosition(getPosition() + targetDistance); }
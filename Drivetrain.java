@@ -38,8 +38,57 @@ public class Drivetrain {
 
     // Set power to all wheels
     private void setPowerAll(double power){
-        setPowerRight(power);
-        setPowerLeft(power);
+        setPowers(power, power, power, power);
+    }
+
+    // Wait on a different clock in blocking moves (all four wheels)
+    public void setClock(RobotClock clock){
+        mRF.setClock(clock);
+        mLF.setClock(clock);
+        mRB.setClock(clock);
+        mLB.setClock(clock);
+    }
+
+    // Record how long each wheel's hub calls take, named after the wheels (null to stop)
+    public void setLatencyMonitor(LatencyMonitor monitor){
+        mRF.setLatencyMonitor(monitor, "mRF");
+        mLF.setLatencyMonitor(monitor, "mLF");
+        mRB.setLatencyMonitor(monitor, "mRB");
+        mLB.setLatencyMonitor(monitor, "mLB");
+    }
+
+    // Scale wheel power for battery voltage (null to turn it off)
+    public void setVoltageCompensator(VoltageCompensator compensator){
+        mRF.setVoltageCompensator(compensator);
+        mLF.setVoltageCompensator(compensator);
+        mRB.setVoltageCompensator(compensator);
+        mLB.setVoltageCompensator(compensator);
+    }
+
+    // Write all four wheel powers as one batch: if none of them have really changed nothing is sent,
+    // otherwise every wheel that differs at all is brought up to date so the wheels never drift apart
+    public void setPowers(double powerRF, double powerLF, double powerRB, double powerLB){
+        powerRF = mRF.compensate(powerRF);
+        powerLF = mLF.compensate(powerLF);
+        powerRB = mRB.compensate(powerRB);
+        powerLB = mLB.compensate(powerLB);
+
+        boolean changed = mRF.isPowerChanged(powerRF) || mLF.isPowerChanged(powerLF) ||
+                mRB.isPowerChanged(powerRB) || mLB.isPowerChanged(powerLB);
+
+        mRF.writePower(powerRF, changed);
+        mLF.writePower(powerLF, changed);
+        mRB.writePower(powerRB, changed);
+        mLB.writePower(powerLB, changed);
+    }
+
+    // Hub writes sent and saved per second by the wheel motors
+    public long getPowerWrites(){
+        return mRF.getPowerWrites() + mLF.getPowerWrites() + mRB.getPowerWrites() + mLB.getPowerWrites();
+    }
+
+    public double getSavedWritesPerSecond(){
+        return mRF.getSavedWritesPerSecond() + mLF.getSavedWritesPerSecond() + mRB.getSavedWritesPerSecond() + mLB.getSavedWritesPerSecond();
     }
 
     // Reverse all wheel motors
@@ -67,10 +116,7 @@ public class Drivetrain {
         - Strafe: horizontal/"sideways"/perpendicular motion
      */
     public void drive(double power, double yaw, double strafe){
-        mRF.setPower(power + yaw - strafe);
-        mLF.setPower(power - yaw + strafe);
-        mRB.setPower(power + yaw + strafe);
-        mLB.setPower(power - yaw - strafe);
+        setPowers(power + yaw - strafe, power - yaw + strafe, power + yaw + strafe, power - yaw - strafe);
     }
 
     // Drive in one direction
@@ -131,7 +177,7 @@ public class Drivetrain {
         // Wait for the motors to finish if blocking
         if(blocking){
             // Any of the motors can finish for the loop to stop
-            while(mRF.core.isBusy() && mLF.core.isBusy() && mRB.core.isBusy() && mLB.core.isBusy());
+            while(mRF.isBusy() && mLF.isBusy() && mRB.isBusy() && mLB.isBusy() && mRF.pollWait());
         }
     }
 
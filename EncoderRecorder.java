@@ -0,0 +1,152 @@
+/*
+Encoder Recorder
+Logs every odometry encoder reading to a compact binary file so a run can be replayed later with EncoderReplay
+Readings are collected in one of two direct buffers: a background thread swaps them and writes the full one to a
+FileChannel, so the odometry thread never waits on the disk (run it on its own thread, then close() it at the end)
+If the writes fall behind and the buffer fills up, new readings are dropped (and counted) rather than blocking odometry
+
+File format (big-endian): int magic, int version, then one 32-byte record per reading
+Record: long timestamp (RobotClock nanoseconds), double R, double L, double B (encoder positions in distance units)
+*/
+
+package org.firstinspires.ftc.teamcode.api;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+public class EncoderRecorder implements Runnable {
+
+    public static final int MAGIC = 0x4F444C47; // "ODLG"
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 8;
+    public static final int RECORD_SIZE = 32;
+
+    private FileChannel channel;
+    // Buffer readings are added to, and the one being written to the file (swapped by flush())
+    private ByteBuffer buffer;
+    private ByteBuffer spare;
+    // Held while writing, so only one thread writes (and swaps) at a time
+    private final Object writeLock = new Object();
+
+    // Number of readings recorded so far, and thrown away because the buffer was full
+    private long records = 0;
+    private long dropped = 0;
+    // First error hit while writing (recording stops after an error rather than interrupting odometry)
+    private IOException error = null;
+
+    // Time between writes (in milliseconds)
+    private final int writePeriod;
+    private volatile boolean isRunning = true;
+    private RobotClock clock = RobotClock.getDefault();
+
+    // Record to a new file, buffering 2048 readings at a time and writing every 50 milliseconds
+    public EncoderRecorder(File file) throws IOException {
+        this(file, 2048, 50);
+    }
+
+    // Record to a new file with a custom buffer size (in readings) and write period
+    // A buffer should hold at least a few write periods' worth of readings
+    public EncoderRecorder(File file, int bufferedRecords, int writePeriod) throws IOException {
+        this.writePeriod = writePeriod;
+
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.setLength(0);
+
+        channel = raf.getChannel();
+        buffer = ByteBuffer.allocateDirect(bufferedRecords * RECORD_SIZE);
+        spare = ByteBuffer.allocateDirect(bufferedRecords * RECORD_SIZE);
+
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+    }
+
+    // Add one reading (allocation-free and never touches the disk)
+    public synchronized void record(long timestamp, double R, double L, double B){
+        if(channel == null || error != null) return;
+
+        if(buffer.remaining() < RECORD_SIZE){
+            dropped++;
+            return;
+        }
+
+        buffer.putLong(timestamp);
+        buffer.putDouble(R);
+        buffer.putDouble(L);
+        buffer.putDouble(B);
+
+        records++;
+    }
+
+    // Write everything buffered so far to the file
+    public void flush(){
+        synchronized(writeLock){
+            ByteBuffer full;
+
+            // Swap buffers, readings go to the empty one while the full one is written
+            synchronized(this){
+                if(channel == null || error != null || buffer.position() == 0) return;
+
+                full = buffer;
+                buffer = spare;
+                spare = full;
+            }
+
+            full.flip();
+
+            try {
+                while(full.hasRemaining()) channel.write(full);
+            } catch (IOException e) {
+                synchronized(this){
+                    error = e;
+                }
+            }
+
+            full.clear();
+        }
+    }
+
+    // Write every write period until close() is called
+    public void run(){
+        while(isRunning){
+            flush();
+
+            try {
+                clock.sleep(writePeriod);
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+                return;
+            }
+        }
+    }
+
+    // Write what is left and close the file (detach the recorder from Odometry first)
+    public void close() throws IOException {
+        synchronized(writeLock){
+            isRunning = false;
+            flush();
+
+            synchronized(this){
+                if(channel == null) return;
+
+                channel.close();
+                channel = null;
+
+                if(error != null) throw error;
+            }
+        }
+    }
+
+    // Write on a different clock
+    public void setClock(RobotClock clock){ this.clock = clock; }
+
+    public synchronized long getRecords(){ return records; }
+
+    public synchronized long getDropped(){ return dropped; }
+
+    // Error that stopped recording, or null if everything was written
+    public synchronized IOException getError(){ return error; }
+
+}
@@ -0,0 +1,131 @@
+/*
+Encoder Replay
+Reads logs written by EncoderRecorder and feeds them through Odometry as fast as the CPU allows
+Useful for checking integration changes and width/backDistancePerRadian tuning against real runs without a robot
+
+Command line: java ...api.EncoderReplay <width> <backDistancePerRadian> [ARC|POSE_EXPONENTIAL] <log files...>
+*/
+
+package org.firstinspires.ftc.teamcode.api;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+public class EncoderReplay {
+
+    private ByteBuffer data;
+
+    // Current reading (valid after next() returns true)
+    private long timestamp;
+    private double R;
+    private double L;
+    private double B;
+
+    // Open a log file (it is memory-mapped, so opening is cheap even for long runs)
+    public EncoderReplay(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+
+        try {
+            FileChannel channel = raf.getChannel();
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            raf.close();
+        }
+
+        if(data.remaining() < EncoderRecorder.HEADER_SIZE || data.getInt() != EncoderRecorder.MAGIC){
+            throw new IOException(file + " is not an encoder log");
+        }
+
+        int version = data.getInt();
+        if(version != EncoderRecorder.VERSION){
+            throw new IOException("Unsupported encoder log version " + version);
+        }
+    }
+
+    // Move to the next reading, returns false at the end of the log
+    public boolean next(){
+        if(data.remaining() < EncoderRecorder.RECORD_SIZE) return false;
+
+        timestamp = data.getLong();
+        R = data.getDouble();
+        L = data.getDouble();
+        B = data.getDouble();
+
+        return true;
+    }
+
+    // Go back to the first reading
+    public void rewind(){
+        data.position(EncoderRecorder.HEADER_SIZE);
+    }
+
+    // Number of readings in the log
+    public int size(){
+        return (data.limit() - EncoderRecorder.HEADER_SIZE) / EncoderRecorder.RECORD_SIZE;
+    }
+
+    public long getTimestamp(){ return timestamp; }
+
+    public double getR(){ return R; }
+
+    public double getL(){ return L; }
+
+    public double getB(){ return B; }
+
+    // Run the whole log through odometry (the first reading is the starting point), returns the number of updates
+    public long replay(Odometry odometry){
+        rewind();
+        if(!next()) return 0;
+
+        odometry.startTracking(R, L, B, timestamp);
+
+        long updates = 0;
+        while(next()){
+            odometry.update(R, L, B, timestamp);
+            updates++;
+        }
+
+        return updates;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if(args.length < 3){
+            System.out.println("Usage: EncoderReplay <width> <backDistancePerRadian> [ARC|POSE_EXPONENTIAL] <log files...>");
+            return;
+        }
+
+        double width = Double.parseDouble(args[0]);
+        double backDistancePerRadian = Double.parseDouble(args[1]);
+
+        int first = 2;
+        Odometry.Integrator integrator = Odometry.Integrator.ARC;
+
+        // Integrator is optional
+        for(Odometry.Integrator option : Odometry.Integrator.values()){
+            if(option.name().equals(args[2])){
+                integrator = option;
+                first = 3;
+            }
+        }
+
+        long totalUpdates = 0;
+        long start = System.nanoTime();
+
+        for(int i = first; i < args.length; i++){
+            Odometry odometry = new Odometry(null, null, null, 5, backDistancePerRadian, width, 0, 0, 0);
+            odometry.integrator = integrator;
+
+            totalUpdates += new EncoderReplay(new File(args[i])).replay(odometry);
+
+            Pose pose = odometry.getPose();
+            System.out.printf("%s: x=%.3f y=%.3f phi=%.5f%n", args[i], pose.x, pose.y, pose.phi);
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Replayed %d updates in %.3f s%n", totalUpdates, seconds);
+    }
+
+}
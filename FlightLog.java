@@ -0,0 +1,127 @@
+/*
+Flight Log
+Reads logs written by FlightRecorder, one record at a time
+Its main() exports a log as CSV for plotting: time (seconds since the first record), then every field
+
+Command line: java ...api.FlightLog <log file> [csv file] (prints the CSV if no output file is given)
+*/
+
+package org.firstinspires.ftc.teamcode.api;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+public class FlightLog {
+
+    private ByteBuffer data;
+    private int size;
+
+    // Current record (valid after next() returns true)
+    private long timestamp;
+    private final double[] values = new double[FlightRecorder.FIELDS];
+
+    // Open a log file (it is memory-mapped, so opening is cheap even for long runs)
+    public FlightLog(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+
+        try {
+            FileChannel channel = raf.getChannel();
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            raf.close();
+        }
+
+        if(data.remaining() < FlightRecorder.HEADER_SIZE || data.getInt() != FlightRecorder.MAGIC){
+            throw new IOException(file + " is not a flight log");
+        }
+
+        int version = data.getInt();
+        if(version != FlightRecorder.VERSION){
+            throw new IOException("Unsupported flight log version " + version);
+        }
+
+        // Trust the header's count, but not past the end of the file (in case it was cut short)
+        long count = data.getLong();
+        long available = (data.limit() - FlightRecorder.HEADER_SIZE)/FlightRecorder.RECORD_SIZE;
+        size = (int) Math.min(count, available);
+    }
+
+    // Move to the next record, returns false at the end of the log
+    public boolean next(){
+        if(data.position() >= FlightRecorder.HEADER_SIZE + size*FlightRecorder.RECORD_SIZE) return false;
+
+        timestamp = data.getLong();
+        for(int i = 0; i < values.length; i++) values[i] = data.getDouble();
+
+        return true;
+    }
+
+    // Go back to the first record
+    public void rewind(){
+        data.position(FlightRecorder.HEADER_SIZE);
+    }
+
+    // Number of records in the log
+    public int size(){ return size; }
+
+    public long getTimestamp(){ return timestamp; }
+
+    public double get(FlightRecorder.Field field){ return values[field.ordinal()]; }
+
+    // Write the whole log as CSV, returns the number of rows
+    public int exportCsv(Writer out) throws IOException {
+        out.write("time");
+        for(FlightRecorder.Field field : FlightRecorder.Field.values()) out.write("," + field.name().toLowerCase());
+        out.write("\n");
+
+        rewind();
+        long start = 0;
+        int rows = 0;
+
+        while(next()){
+            if(rows == 0) start = timestamp;
+
+            StringBuilder row = new StringBuilder();
+            row.append((timestamp - start)/1e9);
+            for(int i = 0; i < values.length; i++) row.append(',').append(values[i]);
+            row.append('\n');
+
+            out.write(row.toString());
+            rows++;
+        }
+
+        out.flush();
+        return rows;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if(args.length < 1){
+            System.out.println("Usage: FlightLog <log file> [csv file]");
+            return;
+        }
+
+        FlightLog log = new FlightLog(new File(args[0]));
+
+        if(args.length < 2){
+            log.exportCsv(new BufferedWriter(new OutputStreamWriter(System.out)));
+            return;
+        }
+
+        Writer out = new BufferedWriter(new FileWriter(args[1]));
+
+        try {
+            int rows = log.exportCsv(out);
+            System.out.printf("Wrote %d records to %s%n", rows, args[1]);
+        } finally {
+            out.close();
+        }
+    }
+
+}
@@ -0,0 +1,213 @@
+/*
+Flight Recorder
+Logs the controller's full state every cycle (pose, setpoint, errors, PID terms and wheel powers) without slowing it down:
+control threads write fixed-size records into a preallocated off-heap ring buffer with no locks and no allocation, and
+a background thread drains them to a memory-mapped file (run it on its own thread, then close() it at the end)
+If the drain falls behind and the ring fills up, new records are dropped (and counted) rather than blocking the loop
+Read logs back with FlightLog (its main() exports CSV)
+
+File format (big-endian): int magic, int version, long record count, then one RECORD_SIZE-byte record per cycle
+Record: long timestamp (RobotClock nanoseconds), then one double per Field, in Field order
+The record count is updated after every drain, so a log cut short (e.g. the app was killed) still reads back up to there
+*/
+
+package org.firstinspires.ftc.teamcode.api;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class FlightRecorder implements Runnable {
+
+    public static final int MAGIC = 0x464C5452; // "FLTR"
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 16;
+    // Offset of the record count in the header
+    private static final int COUNT_OFFSET = 8;
+
+    public static final int FIELDS = Field.values().length;
+    public static final int RECORD_SIZE = 8 + 8*FIELDS;
+
+    // Ring buffer of records, its size in records (a power of two) and the mask that turns a sequence number into a slot
+    private final ByteBuffer ring;
+    private final int capacity;
+    private final int mask;
+    // Sequence number of the next record to be claimed by a writer, and of the next one to be drained
+    private final AtomicLong head = new AtomicLong(0);
+    private volatile long tail = 0;
+    // Sequence number + 1 of the record last committed to each slot (the drain only copies slots that are fully written)
+    private final AtomicLongArray commits;
+    // Records thrown away because the ring was full
+    private final AtomicLong dropped = new AtomicLong(0);
+
+    // Drain thread's view of the ring (it moves the position/limit, which writers never touch)
+    private final ByteBuffer drainView;
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    // Part of the file currently mapped for drained records, and how many records it holds
+    private MappedByteBuffer region = null;
+    private final int regionRecords;
+    // Records written to the file so far
+    private long records = 0;
+    // First error hit while writing (recording stops after an error rather than interrupting the controller)
+    private IOException error = null;
+
+    // Time between drains (in milliseconds)
+    private final int drainPeriod;
+    private volatile boolean isRunning = true;
+    private RobotClock clock = RobotClock.getDefault();
+
+    // Record to a new file with room for 4096 records in memory, drained every 50 milliseconds
+    public FlightRecorder(File file) throws IOException {
+        this(file, 4096, 50);
+    }
+
+    // Record to a new file with a custom ring size (in records, rounded up to a power of two) and drain period
+    // The ring should hold at least a few drain periods' worth of records from every thread writing to it
+    public FlightRecorder(File file, int capacity, int drainPeriod) throws IOException {
+        this.capacity = capacity <= 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = this.capacity - 1;
+        this.drainPeriod = drainPeriod;
+
+        ring = ByteBuffer.allocateDirect(this.capacity*RECORD_SIZE);
+        drainView = ring.duplicate();
+        commits = new AtomicLongArray(this.capacity);
+        // Map the file a ring's worth of records at a time
+        regionRecords = this.capacity;
+
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.setLength(0);
+        channel = raf.getChannel();
+
+        header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+        header.putInt(0, MAGIC);
+        header.putInt(4, VERSION);
+        header.putLong(COUNT_OFFSET, 0);
+    }
+
+    // Add one record (lock-free and allocation-free, safe to call from any number of threads)
+    // Values are indexed by Field ordinal, returns false if the record was dropped because the ring is full
+    public boolean record(long timestamp, double[] values){
+        // Claim the next slot, unless that would overwrite a record the drain hasn't copied yet
+        long sequence;
+        do {
+            sequence = head.get();
+
+            if(sequence - tail >= capacity){
+                dropped.incrementAndGet();
+                return false;
+            }
+        } while(!head.compareAndSet(sequence, sequence + 1));
+
+        // Writers only ever use absolute puts, each into its own slot
+        int slot = (int) (sequence & mask);
+        int offset = slot*RECORD_SIZE;
+
+        ring.putLong(offset, timestamp);
+        for(int i = 0; i < FIELDS; i++) ring.putDouble(offset + 8 + 8*i, values[i]);
+
+        // Publish the slot (ordered after the writes above, so the drain never sees it half-written)
+        commits.lazySet(slot, sequence + 1);
+        return true;
+    }
+
+    // Copy every committed record (in order) to the file
+    public synchronized void drain(){
+        if(error != null) return;
+
+        long sequence = tail;
+
+        try {
+            while(true){
+                int slot = (int) (sequence & mask);
+                // Stop at the first slot that's still being written (or hasn't been claimed yet)
+                if(commits.get(slot) != sequence + 1) break;
+
+                if(region == null || !region.hasRemaining()){
+                    region = channel.map(FileChannel.MapMode.READ_WRITE,
+                            HEADER_SIZE + records*RECORD_SIZE, (long) regionRecords*RECORD_SIZE);
+                }
+
+                int offset = slot*RECORD_SIZE;
+                drainView.limit(offset + RECORD_SIZE);
+                drainView.position(offset);
+                region.put(drainView);
+
+                records++;
+                sequence++;
+                // Hand the slot back to the writers
+                tail = sequence;
+            }
+        } catch (IOException e) {
+            error = e;
+        }
+
+        header.putLong(COUNT_OFFSET, records);
+    }
+
+    // Drain the ring every drain period until close() is called
+    public void run(){
+        while(isRunning){
+            drain();
+
+            try {
+                clock.sleep(drainPeriod);
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+                return;
+            }
+        }
+    }
+
+    // Drain whatever is left, trim the file to the records written and close it (detach the recorder first)
+    public synchronized void close() throws IOException {
+        if(!channel.isOpen()) return;
+
+        isRunning = false;
+        drain();
+
+        if(region != null) region.force();
+        header.force();
+        channel.truncate(HEADER_SIZE + records*RECORD_SIZE);
+        channel.close();
+
+        if(error != null) throw error;
+    }
+
+    // Drain on a different clock
+    public void setClock(RobotClock clock){ this.clock = clock; }
+
+    public synchronized long getRecords(){ return records; }
+
+    public long getDropped(){ return dropped.get(); }
+
+    // Records waiting in the ring to be drained
+    public long getPending(){ return head.get() - tail; }
+
+    public int getCapacity(){ return capacity; }
+
+    // Error that stopped recording, or null if everything was written
+    public synchronized IOException getError(){ return error; }
+
+    // Values in each record, in file order
+    public static enum Field {
+        // Measured pose
+        X, Y, PHI,
+        // Setpoint
+        X_TARGET, Y_TARGET, PHI_TARGET,
+        // Error from the setpoint
+        X_ERROR, Y_ERROR, PHI_ERROR,
+        // PID terms (output contributed by each)
+        X_P, X_I, X_D,
+        Y_P, Y_I, Y_D,
+        PHI_P, PHI_I, PHI_D,
+        // Wheel powers commanded (before voltage compensation, 0 while inactive)
+        POWER_RF, POWER_LF, POWER_RB, POWER_LB
+    }
+
+}
@@ -0,0 +1,112 @@
+/*
+IMU Heading Reader
+Reads the IMU's heading on its own thread so slow I2C reads never hold up odometry
+Odometry picks up the latest sample (and when it was taken) without waiting, see Odometry.setHeadingFusion()
+*/
+
+package org.firstinspires.ftc.teamcode.api;
+
+import com.qualcomm.hardware.bosch.BNO055IMU;
+
+import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
+import org.firstinspires.ftc.robotcore.external.navigation.AxesOrder;
+import org.firstinspires.ftc.robotcore.external.navigation.AxesReference;
+
+public class ImuHeading implements Runnable {
+
+    public BNO055IMU imu;
+    // The IMU's yaw increases counterclockwise, while Odometry's heading increases clockwise (dL > dR)
+    // Leave reversed on unless the IMU is mounted upside down
+    private boolean reversed;
+
+    // Run/Stop the IMU thread
+    private volatile boolean isRunning = true;
+    public LoopScheduler scheduler;
+    // Source of sample timestamps and loop timing
+    private RobotClock clock = RobotClock.getDefault();
+
+    // Latest sample, guarded by a sequence lock like Odometry's pose (odd while a write is in progress)
+    private volatile long version = 0;
+    private volatile double heading;
+    private volatile long sampleTime;
+
+    // Reader for an already-initialized IMU, sampling every cycleTime milliseconds
+    public ImuHeading(BNO055IMU imu, boolean reversed, int cycleTime){
+        this.imu = imu;
+        this.reversed = reversed;
+        this.scheduler = new LoopScheduler(cycleTime);
+    }
+
+    // Reader that samples every 20 ms
+    public ImuHeading(BNO055IMU imu){
+        this(imu, true, 20);
+    }
+
+    // Read the IMU once and publish the result
+    public void update(){
+        long time = clock.nanoTime();
+        double yaw = imu.getAngularOrientation(AxesReference.INTRINSIC, AxesOrder.ZYX, AngleUnit.RADIANS).firstAngle;
+        // Assume the reading was taken halfway through the I2C transaction
+        time += (clock.nanoTime() - time)/2;
+
+        version++;
+        heading = reversed ? -yaw : yaw;
+        sampleTime = time;
+        version++;
+    }
+
+    public void run(){
+        scheduler.start();
+
+        while(isRunning){
+            update();
+
+            try {
+                scheduler.sync();
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    // Take timestamps and run the sampling loop on a different clock (use the same one as Odometry)
+    public void setClock(RobotClock clock){
+        this.clock = clock;
+        scheduler.setClock(clock);
+    }
+
+    // Number of samples taken so far (changes whenever there is a new sample)
+    public long getSampleCount(){ return version/2; }
+
+    // Copy the latest sample into out (lock-free, out can be reused to avoid allocating)
+    public void getSample(Sample out){
+        while(true){
+            long v = version;
+            if((v & 1) != 0) continue;
+
+            double heading = this.heading;
+            long time = sampleTime;
+
+            if(version == v){
+                out.heading = heading;
+                out.time = time;
+                out.count = v/2;
+                return;
+            }
+        }
+    }
+
+    // Stop the thread
+    public void stop(){ isRunning = false; }
+
+    // One IMU reading
+    public static class Sample {
+        // Heading in radians (wrapped to [-pi, pi], same direction as Odometry)
+        public double heading;
+        // Clock time (nanoseconds) the reading was taken at
+        public long time;
+        // Number of samples taken up to this one (changes whenever there is a new sample)
+        public long count;
+    }
+
+}
@@ -0,0 +1,133 @@
+/*
+Latency Histogram
+Distribution of durations (in nanoseconds), bucketed like HdrHistogram: every power of two is split into SUB_BUCKETS
+linear buckets, so any value is known to within about 3% from a nanosecond up to about 18 minutes
+Recording is lock-free and allocation-free (one atomic increment), so it can sit on every hardware call of a control loop
+Percentiles are reported as the top of their bucket, and never above the largest value recorded
+*/
+
+package org.firstinspires.ftc.teamcode.api;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class LatencyHistogram {
+
+    // Linear buckets per power of two (as bits), and half that many, the number each power of two after the first adds
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int HALF_BUCKETS = SUB_BUCKETS/2;
+    // Values from 2^MAX_MAGNITUDE nanoseconds up all land in the top bucket
+    private static final int MAX_MAGNITUDE = 40;
+    private static final int BUCKETS = HALF_BUCKETS*(MAX_MAGNITUDE - SUB_BUCKET_BITS + 2);
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong max = new AtomicLong(0);
+    private final AtomicLong sum = new AtomicLong(0);
+
+    // Add one duration (negative durations count as 0)
+    public void record(long nanos){
+        if(nanos < 0) nanos = 0;
+
+        counts.incrementAndGet(bucket(nanos));
+        sum.addAndGet(nanos);
+
+        long current;
+        while(nanos > (current = max.get()) && !max.compareAndSet(current, nanos));
+    }
+
+    // Bucket a value falls in: values below SUB_BUCKETS get a bucket each, above that each power of two gets HALF_BUCKETS
+    private static int bucket(long value){
+        if(value < SUB_BUCKETS) return (int) value;
+
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        if(magnitude >= MAX_MAGNITUDE) return BUCKETS - 1;
+
+        int shift = magnitude - SUB_BUCKET_BITS + 1;
+        return HALF_BUCKETS*shift + (int) (value >>> shift);
+    }
+
+    // Largest value that falls in a bucket
+    private static long bucketTop(int bucket){
+        if(bucket < SUB_BUCKETS) return bucket;
+        // The top bucket has no upper end
+        if(bucket == BUCKETS - 1) return Long.MAX_VALUE;
+
+        int shift = bucket/HALF_BUCKETS - 1;
+        long sub = bucket - HALF_BUCKETS*shift;
+        return ((sub + 1) << shift) - 1;
+    }
+
+    // Number of values recorded
+    public long getCount(){
+        long count = 0;
+        for(int i = 0; i < BUCKETS; i++) count += counts.get(i);
+        return count;
+    }
+
+    // Value that a percentage (0-100) of the recorded values are at or below, 0 if nothing was recorded
+    public long getPercentile(double percentile){
+        return percentile(getCount(), percentile);
+    }
+
+    private long percentile(long count, double percentile){
+        if(count == 0) return 0;
+
+        // Rank of the value wanted (at least the first)
+        long rank = Math.max(1, (long) Math.ceil(percentile/100*count));
+        long seen = 0;
+
+        for(int i = 0; i < BUCKETS; i++){
+            seen += counts.get(i);
+            if(seen >= rank) return Math.min(bucketTop(i), max.get());
+        }
+
+        // Values were recorded while counting, the largest is as good an answer as any
+        return max.get();
+    }
+
+    public long getMax(){ return max.get(); }
+
+    // Mean of the recorded values (in nanoseconds)
+    public double getMean(){
+        long count = getCount();
+        return count == 0 ? 0 : (double) sum.get()/count;
+    }
+
+    // Fill in a snapshot of the distribution (values recorded while it's taken may or may not be included)
+    public Snapshot getSnapshot(Snapshot out){
+        out.count = getCount();
+        out.p50 = percentile(out.count, 50);
+        out.p99 = percentile(out.count, 99);
+        out.max = max.get();
+        out.mean = out.count == 0 ? 0 : (double) sum.get()/out.count;
+        return out;
+    }
+
+    public Snapshot getSnapshot(){
+        return getSnapshot(new Snapshot());
+    }
+
+    // Forget everything recorded (values recorded at the same time may be partly kept)
+    public void reset(){
+        for(int i = 0; i < BUCKETS; i++) counts.set(i, 0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    // Summary of a histogram at one point in time (durations in nanoseconds)
+    public static class Snapshot {
+        public long count;
+        public long p50;
+        public long p99;
+        public long max;
+        public double mean;
+
+        // e.g. "p50 0.412 ms, p99 1.930 ms, max 4.211 ms (1500)"
+        @Override
+        public String toString(){
+            return String.format("p50 %.3f ms, p99 %.3f ms, max %.3f ms (%d)", p50/1e6, p99/1e6, max/1e6, count);
+        }
+    }
+
+}
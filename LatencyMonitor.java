@@ -0,0 +1,84 @@
+/*
+Latency Monitor
+Named LatencyHistograms for everything that takes time in a control cycle: loop periods and work times (LoopScheduler),
+motor reads and writes (DcMotorX), bulk reads (BulkReadCache), servo calls (ServoX) and limit switches (LimitedMotorX)
+Hand the same monitor to each of them with setLatencyMonitor(), then show the p50/p99/max of every histogram on the
+Driver Station with report() or save them with write() to see which hub calls eat the cycle budget
+
+Histogram names are "<name> <what>", e.g. "control period", "mRF write", "hub bulk read", "arm limit"
+*/
+
+package org.firstinspires.ftc.teamcode.api;
+
+import org.firstinspires.ftc.robotcore.external.Telemetry;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class LatencyMonitor {
+
+    // Histograms in the order they were created
+    private final Map<String, LatencyHistogram> histograms = new LinkedHashMap<>();
+
+    // Histogram with a name, created the first time it's asked for (look them up once, not every cycle)
+    public synchronized LatencyHistogram get(String name){
+        LatencyHistogram histogram = histograms.get(name);
+
+        if(histogram == null){
+            histogram = new LatencyHistogram();
+            histograms.put(name, histogram);
+        }
+
+        return histogram;
+    }
+
+    public synchronized List<String> getNames(){
+        return new ArrayList<>(histograms.keySet());
+    }
+
+    // Add a line per histogram that has values (call telemetry.update() afterwards as usual)
+    public void report(Telemetry telemetry){
+        LatencyHistogram.Snapshot snapshot = new LatencyHistogram.Snapshot();
+
+        for(String name : getNames()){
+            get(name).getSnapshot(snapshot);
+            if(snapshot.count > 0) telemetry.addData(name, snapshot.toString());
+        }
+    }
+
+    // Write every histogram as a CSV table (durations in microseconds)
+    public void write(Writer out) throws IOException {
+        LatencyHistogram.Snapshot snapshot = new LatencyHistogram.Snapshot();
+        out.write("name,count,p50_us,p99_us,max_us,mean_us\n");
+
+        for(String name : getNames()){
+            get(name).getSnapshot(snapshot);
+            out.write(String.format("%s,%d,%.3f,%.3f,%.3f,%.3f%n", name, snapshot.count,
+                    snapshot.p50/1e3, snapshot.p99/1e3, snapshot.max/1e3, snapshot.mean/1e3));
+        }
+
+        out.flush();
+    }
+
+    public void write(File file) throws IOException {
+        Writer out = new FileWriter(file);
+
+        try {
+            write(out);
+        } finally {
+            out.close();
+        }
+    }
+
+    // Start every histogram over (e.g. after init, so startup calls don't count)
+    public void reset(){
+        for(String name : getNames()) get(name).reset();
+    }
+
+}
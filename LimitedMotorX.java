@@ -17,6 +17,9 @@ public class LimitedMotorX extends DcMotorX {
     private Double positionLimitLower = null;
     private Double positionLimitUpper = null;
 
+    // Distribution of the time limit switch reads take (null when not monitored)
+    private LatencyHistogram touchLatency = null;
+
     // LimitedMotorX uses the same exact constructors as DcMotorX
 
     public LimitedMotorX(DcMotor motor){
@@ -78,6 +81,22 @@ public class LimitedMotorX extends DcMotorX {
         }
     }
 
+    // Also record how long every limit switch read takes, as "<name> limit"
+    @Override
+    public void setLatencyMonitor(LatencyMonitor monitor, String name){
+        super.setLatencyMonitor(monitor, name);
+        touchLatency = monitor == null ? null : monitor.get(name + " limit");
+    }
+
+    // Read a limit switch
+    private boolean isPressed(TouchSensor limit){
+        LatencyHistogram latency = touchLatency;
+        long start = startCall(latency);
+        boolean pressed = limit.isPressed();
+        endCall(latency, start);
+        return pressed;
+    }
+
     // Check if either limit is pressed
     public boolean limitPressed(){
         return limitLowerPressed() || limitUpperPressed();
@@ -98,7 +117,7 @@ public class LimitedMotorX extends DcMotorX {
                 return getPosition() >= positionLimitLower;
             }
         }else{
-            return limitLower.isPressed();
+            return isPressed(limitLower);
         }
     }
 
@@ -111,7 +130,7 @@ public class LimitedMotorX extends DcMotorX {
                 return getPosition() <= positionLimitUpper;
             }
         }else{
-            return limitLower.isPressed();
+            return isPressed(limitLower);
         }
     }
 
@@ -141,23 +160,23 @@ public class LimitedMotorX extends DcMotorX {
     }
 
     public void goToDistance(double position, double speed){
-        if(!core.getMode().equals(DcMotor.RunMode.RUN_TO_POSITION)) controlPosition();
+        if(!getMode().equals(DcMotor.RunMode.RUN_TO_POSITION)) controlPosition();
         setDistance(position, speed);
 
-        while(core.isBusy() && !limitPressed(position));
+        while(isBusy() && !limitPressed(position) && pollWait());
     }
 
     public void goToPosition(double position, double speed){
-        if(!core.getMode().equals(DcMotor.RunMode.RUN_TO_POSITION)) controlPosition();
+        if(!getMode().equals(DcMotor.RunMode.RUN_TO_POSITION)) controlPosition();
         setPosition(position, speed);
 
-        while(core.isBusy() && !limitPressed(position));
+        while(isBusy() && !limitPressed(position) && pollWait());
     }
 
     // (Blocking) go to the lower limit
     public void goToLowerLimit(double speed){
         setPower(speed);
-        while(!limitLower.isPressed());
+        while(!isPressed(limitLower) && pollWait());
         setPower(0);
     }
 
@@ -171,7 +190,7 @@ public class LimitedMotorX extends DcMotorX {
     // (Blocking) go to the upper limit
     public void goToUpperLimit(double speed){
         setPower(speed);
-        while(!limitUpper.isPressed());
+        while(!isPressed(limitUpper) && pollWait());
         setPower(0);
     }
 
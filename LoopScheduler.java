@@ -0,0 +1,158 @@
+/*
+Fixed-Rate Loop Scheduler
+Paces a control loop against absolute deadlines measured with a RobotClock, so sleep error doesn't pile up from cycle to cycle
+Also measures the period the loop actually ran at and how much it jittered around the target
+*/
+
+package org.firstinspires.ftc.teamcode.api;
+
+public class LoopScheduler {
+
+    // Weight given to the newest sample in the period/jitter running averages
+    private static final double SMOOTHING = 0.05;
+
+    // Clock the deadlines are measured and waited on with
+    private RobotClock clock = RobotClock.getDefault();
+
+    // Target time between cycle starts (in nanoseconds)
+    private long period;
+    // What to do when a cycle runs past its deadline
+    private OverrunPolicy overrunPolicy;
+
+    // Absolute time the next cycle should start at
+    private long nextDeadline;
+    // Start of the current cycle
+    private long cycleStart;
+    private boolean started = false;
+
+    // Measured time between the last two cycle starts (in nanoseconds)
+    private long lastPeriod;
+    // Time the last cycle spent working, not counting the wait (in nanoseconds)
+    private long workTime;
+    // Running averages of the measured period and its deviation from the target (in nanoseconds)
+    private double averagePeriod;
+    private double jitter;
+    // Number of deadlines missed since the loop started, and the latest deadline counted in it
+    // (catching up runs late cycles back-to-back, and each of them would otherwise count the same deadlines again)
+    private long overruns = 0;
+    private long countedDeadline;
+    // Distributions of the period and work time (null when not monitored)
+    private LatencyHistogram periodLatency = null;
+    private LatencyHistogram workLatency = null;
+
+    // Scheduler with a cycle time in milliseconds (same units as the rest of the API)
+    public LoopScheduler(int cycleTime){
+        this(cycleTime * 1000000L, OverrunPolicy.SKIP);
+    }
+
+    // Scheduler with a period in nanoseconds and a custom overrun policy
+    public LoopScheduler(long period, OverrunPolicy overrunPolicy){
+        setPeriod(period);
+        this.overrunPolicy = overrunPolicy;
+    }
+
+    // Scheduler that runs at a set frequency (in Hz)
+    public static LoopScheduler fromFrequency(double frequency, OverrunPolicy overrunPolicy){
+        return new LoopScheduler(Math.round(1e9 / frequency), overrunPolicy);
+    }
+
+    // Start the deadline grid at the current time (call right before entering the loop)
+    public void start(){
+        cycleStart = clock.nanoTime();
+        nextDeadline = cycleStart + period;
+        lastPeriod = period;
+        averagePeriod = period;
+        jitter = 0;
+        overruns = 0;
+        countedDeadline = cycleStart;
+        started = true;
+    }
+
+    // Wait for the next deadline (call once at the end of every cycle)
+    public void sync() throws InterruptedException {
+        if(!started) start();
+
+        long now = clock.nanoTime();
+        workTime = now - cycleStart;
+        if(workLatency != null) workLatency.record(workTime);
+
+        if(now > nextDeadline){
+            // Count every deadline that went by while the cycle was still working (once, even if an earlier cycle saw it go by)
+            long missed = (now - nextDeadline) / period + 1;
+            long latest = nextDeadline + (missed - 1) * period;
+            if(latest > countedDeadline){
+                overruns += (latest - Math.max(countedDeadline, nextDeadline - period)) / period;
+                countedDeadline = latest;
+            }
+
+            // Skipping realigns to the next deadline on the original grid, catching up starts the next cycle right away
+            if(overrunPolicy == OverrunPolicy.SKIP) nextDeadline += missed * period;
+        }
+
+        long wait = nextDeadline - now;
+        if(wait > 0){
+            clock.sleepNanos(wait);
+        }
+
+        long start = clock.nanoTime();
+        lastPeriod = start - cycleStart;
+        cycleStart = start;
+        nextDeadline += period;
+        if(periodLatency != null) periodLatency.record(lastPeriod);
+
+        // Track the period and its deviation from the target
+        averagePeriod += SMOOTHING * (lastPeriod - averagePeriod);
+        jitter += SMOOTHING * (Math.abs(lastPeriod - period) - jitter);
+    }
+
+    // Change the target period (in nanoseconds)
+    public void setPeriod(long period){
+        if(period <= 0) throw new IllegalArgumentException("Loop period must be positive");
+
+        this.period = period;
+    }
+
+    // Change the target frequency (in Hz)
+    public void setFrequency(double frequency){
+        setPeriod(Math.round(1e9 / frequency));
+    }
+
+    // Run on a different clock (call before start())
+    public void setClock(RobotClock clock){ this.clock = clock; }
+
+    public RobotClock getClock(){ return clock; }
+
+    // Record every period and work time as "<name> period" and "<name> work" (null to stop)
+    public void setLatencyMonitor(LatencyMonitor monitor, String name){
+        periodLatency = monitor == null ? null : monitor.get(name + " period");
+        workLatency = monitor == null ? null : monitor.get(name + " work");
+    }
+
+    public void setOverrunPolicy(OverrunPolicy overrunPolicy){ this.overrunPolicy = overrunPolicy; }
+
+    public long getPeriod(){ return period; }
+
+    // Measured time between the last two cycle starts (in seconds), use this as dt for integrals/derivatives
+    // With CATCH_UP, the cycles run back-to-back after an overrun get a dt close to 0, which spikes derivative terms
+    public double getDt(){ return lastPeriod / 1e9; }
+
+    public long getLastPeriod(){ return lastPeriod; }
+
+    public long getWorkTime(){ return workTime; }
+
+    public double getAveragePeriod(){ return averagePeriod; }
+
+    public double getJitter(){ return jitter; }
+
+    public long getOverruns(){ return overruns; }
+
+    // Overrun handling options
+    public static enum OverrunPolicy {
+        // Drop the missed cycles and wait for the next deadline on the original grid
+        SKIP,
+        // Run the missed cycles back-to-back until the loop is back on schedule
+        // Only for loops that don't differentiate over dt: those cycles are measured as nearly 0 long
+        CATCH_UP
+    }
+
+}
@@ -0,0 +1,91 @@
+/*
+Low-Pass Filter
+Smooths a signal sampled at a (possibly varying) time step, e.g. a noisy derivative
+    - FIRST_ORDER: single pole (RC) filter, least lag
+    - BIQUAD: second order Butterworth filter, cuts noise above the cutoff much more sharply
+Coefficients are only recomputed when the time step changes noticeably, and filtering doesn't allocate
+*/
+
+package org.firstinspires.ftc.teamcode.api;
+
+public class LowPassFilter {
+
+    // Relative change in the time step needed to recompute the coefficients
+    private static final double DT_TOLERANCE = 0.05;
+
+    public final Type type;
+    // Cutoff frequency (in Hz)
+    public final double cutoff;
+
+    // Coefficients and the time step they were computed for
+    private double b0, b1, b2, a1, a2;
+    private double coefficientDt = 0;
+
+    // Past inputs and outputs
+    private double x1, x2, y1, y2;
+
+    public LowPassFilter(Type type, double cutoff){
+        if(cutoff <= 0) throw new IllegalArgumentException("Cutoff frequency must be positive");
+
+        this.type = type;
+        this.cutoff = cutoff;
+    }
+
+    // Filter the next sample, taken dt seconds after the last one
+    public double filter(double input, double dt){
+        if(dt <= 0) return y1;
+        if(Math.abs(dt - coefficientDt) > DT_TOLERANCE*coefficientDt) computeCoefficients(dt);
+
+        double output = b0*input + b1*x1 + b2*x2 - a1*y1 - a2*y2;
+
+        x2 = x1;
+        x1 = input;
+        y2 = y1;
+        y1 = output;
+
+        return output;
+    }
+
+    private void computeCoefficients(double dt){
+        coefficientDt = dt;
+
+        if(type == Type.FIRST_ORDER){
+            // y += alpha*(x - y)
+            double rc = 1/(2*Math.PI*cutoff);
+            double alpha = dt/(rc + dt);
+
+            b0 = alpha;
+            b1 = 0;
+            b2 = 0;
+            a1 = alpha - 1;
+            a2 = 0;
+        }else{
+            // Bilinear transform of a Butterworth filter (Q = 1/sqrt(2)), the cutoff is kept below the Nyquist frequency
+            double k = Math.tan(Math.PI*Math.min(cutoff*dt, 0.45));
+            double q = Math.sqrt(0.5);
+            double norm = 1/(1 + k/q + k*k);
+
+            b0 = k*k*norm;
+            b1 = 2*b0;
+            b2 = b0;
+            a1 = 2*(k*k - 1)*norm;
+            a2 = (1 - k/q + k*k)*norm;
+        }
+    }
+
+    // Start the filter settled at a value
+    public void reset(double value){
+        x1 = value;
+        x2 = value;
+        y1 = value;
+        y2 = value;
+    }
+
+    public double getOutput(){ return y1; }
+
+    // Available filters
+    public static enum Type {
+        FIRST_ORDER, BIQUAD
+    }
+
+}
@@ -0,0 +1,176 @@
+/*
+Motion Estimator
+Estimates velocity and acceleration of each coordinate (x, y, phi) from timestamped positions, without allocating
+Two filters are available:
+    - ALPHA_BETA: alpha-beta-gamma tracking filter, cheap and smooth, lags a little behind sudden changes
+    - LEAST_SQUARES: fits a parabola to the last few samples, follows changes faster but passes through more noise
+*/
+
+package org.firstinspires.ftc.teamcode.api;
+
+public class MotionEstimator {
+
+    // Number of coordinates being tracked (x, y, phi)
+    private static final int AXES = 3;
+
+    private Filter filter;
+
+    // Alpha-beta-gamma gains (position, velocity, acceleration correction)
+    private double alpha;
+    private double beta;
+    private double gamma;
+
+    // Least-squares window (number of samples to fit)
+    private int window;
+    private final long[] times;
+    private final double[][] samples;
+    private int count = 0;
+    private int next = 0;
+
+    // Estimated position, velocity and acceleration of each coordinate
+    private final double[] position = new double[AXES];
+    private final double[] velocity = new double[AXES];
+    private final double[] acceleration = new double[AXES];
+    private long lastTime;
+
+    // Alpha-beta-gamma filter with default gains
+    public MotionEstimator(){
+        this(0.5, 0.1, 0.01);
+    }
+
+    // Alpha-beta-gamma filter with custom gains
+    public MotionEstimator(double alpha, double beta, double gamma){
+        this.filter = Filter.ALPHA_BETA;
+        this.alpha = alpha;
+        this.beta = beta;
+        this.gamma = gamma;
+
+        times = new long[0];
+        samples = new double[AXES][0];
+    }
+
+    // Least-squares filter over the last window samples (at least 3)
+    public MotionEstimator(int window){
+        if(window < 3) throw new IllegalArgumentException("Least-squares window needs at least 3 samples");
+
+        this.filter = Filter.LEAST_SQUARES;
+        this.window = window;
+
+        times = new long[window];
+        samples = new double[AXES][window];
+    }
+
+    // Forget all past samples (use when the position jumps)
+    public void reset(){
+        count = 0;
+        next = 0;
+
+        for(int i = 0; i < AXES; i++){
+            velocity[i] = 0;
+            acceleration[i] = 0;
+        }
+    }
+
+    // Add a position measured at a clock timestamp (nanoseconds)
+    public void update(long time, double x, double y, double phi){
+        if(filter == Filter.ALPHA_BETA) updateAlphaBeta(time, x, y, phi);
+        else updateLeastSquares(time, x, y, phi);
+
+        lastTime = time;
+    }
+
+    private void updateAlphaBeta(long time, double x, double y, double phi){
+        if(count == 0 || time <= lastTime){
+            position[0] = x;
+            position[1] = y;
+            position[2] = phi;
+            count = 1;
+            return;
+        }
+
+        double dt = (time - lastTime)/1e9;
+
+        for(int i = 0; i < AXES; i++){
+            double measured = i == 0 ? x : i == 1 ? y : phi;
+
+            // Predict forward with the current estimate
+            double predicted = position[i] + velocity[i]*dt + acceleration[i]*dt*dt/2;
+            double residual = measured - predicted;
+
+            // Correct each estimate by part of the prediction error
+            position[i] = predicted + alpha*residual;
+            velocity[i] += acceleration[i]*dt + beta*residual/dt;
+            acceleration[i] += 2*gamma*residual/(dt*dt);
+        }
+    }
+
+    private void updateLeastSquares(long time, double x, double y, double phi){
+        times[next] = time;
+        samples[0][next] = x;
+        samples[1][next] = y;
+        samples[2][next] = phi;
+
+        next = (next + 1) % window;
+        if(count < window) count++;
+
+        // Fit z = c0 + c1*t + c2*t^2 with t measured back from the newest sample, so c1 is the velocity and 2*c2 the acceleration now
+        double s0 = count, s1 = 0, s2 = 0, s3 = 0, s4 = 0;
+        for(int k = 0; k < count; k++){
+            double t = (times[k] - time)/1e9;
+            double t2 = t*t;
+            s1 += t;
+            s2 += t2;
+            s3 += t2*t;
+            s4 += t2*t2;
+        }
+
+        // With fewer than 3 samples only a line (or nothing) can be fit
+        boolean quadratic = count >= 3;
+        double det = quadratic ? s0*(s2*s4 - s3*s3) - s1*(s1*s4 - s2*s3) + s2*(s1*s3 - s2*s2) : s0*s2 - s1*s1;
+
+        for(int i = 0; i < AXES; i++){
+            double measured = i == 0 ? x : i == 1 ? y : phi;
+            position[i] = measured;
+
+            if(count < 2 || Math.abs(det) < 1e-30){
+                velocity[i] = 0;
+                acceleration[i] = 0;
+                continue;
+            }
+
+            double b0 = 0, b1 = 0, b2 = 0;
+            for(int k = 0; k < count; k++){
+                double t = (times[k] - time)/1e9;
+                double z = samples[i][k];
+                b0 += z;
+                b1 += z*t;
+                b2 += z*t*t;
+            }
+
+            if(quadratic){
+                // Cramer's rule for c1 and c2
+                double det1 = s0*(b1*s4 - s3*b2) - b0*(s1*s4 - s3*s2) + s2*(s1*b2 - b1*s2);
+                double det2 = s0*(s2*b2 - b1*s3) - s1*(s1*b2 - b1*s2) + b0*(s1*s3 - s2*s2);
+                velocity[i] = det1/det;
+                acceleration[i] = 2*det2/det;
+            }else{
+                velocity[i] = (s0*b1 - s1*b0)/det;
+                acceleration[i] = 0;
+            }
+        }
+    }
+
+    // Estimated velocity of a coordinate (0 = x, 1 = y, 2 = phi) in units per second
+    public double getVelocity(int axis){ return velocity[axis]; }
+
+    // Estimated acceleration of a coordinate in units per second squared
+    public double getAcceleration(int axis){ return acceleration[axis]; }
+
+    public Filter getFilter(){ return filter; }
+
+    // Available filters
+    public static enum Filter {
+        ALPHA_BETA, LEAST_SQUARES
+    }
+
+}
@@ -0,0 +1,161 @@
+/*
+Motion Profile
+Time-parameterized rest-to-rest move over a set distance under velocity, acceleration and jerk limits
+With a finite jerk limit the profile is an S-curve (7 segments), with an infinite jerk limit it is a trapezoid
+Moves that are too short to reach the limits use a lower peak velocity/acceleration
+*/
+
+package org.firstinspires.ftc.teamcode.api;
+
+public class MotionProfile {
+
+    // Number of segments: jerk up, constant acceleration, jerk down, cruise, and the mirror image for slowing down
+    private static final int SEGMENTS = 7;
+
+    // Direction of the move (the profile itself is computed for a positive distance)
+    private double sign;
+
+    // Duration and jerk of each segment
+    private final double[] durations = new double[SEGMENTS];
+    private final double[] jerks = new double[SEGMENTS];
+    // Position, velocity and acceleration at the start of each segment (plus the end of the profile)
+    private final double[] startTimes = new double[SEGMENTS + 1];
+    private final double[] positions = new double[SEGMENTS + 1];
+    private final double[] velocities = new double[SEGMENTS + 1];
+    private final double[] accelerations = new double[SEGMENTS + 1];
+
+    public MotionProfile(double distance, Constraints constraints){
+        this(distance, constraints.maxVelocity, constraints.maxAcceleration, constraints.maxJerk);
+    }
+
+    // Use Double.POSITIVE_INFINITY for maxJerk to get a trapezoidal profile
+    public MotionProfile(double distance, double maxVelocity, double maxAcceleration, double maxJerk){
+        if(maxVelocity <= 0 || maxAcceleration <= 0 || maxJerk <= 0){
+            throw new IllegalArgumentException("Motion profile limits must be positive");
+        }
+
+        sign = distance < 0 ? -1 : 1;
+        distance = Math.abs(distance);
+
+        // Peak velocity: the limit if there is room to cruise, otherwise the highest velocity that still stops in time
+        double peak = maxVelocity;
+        if(accelerationDistance(peak, maxAcceleration, maxJerk) * 2 > distance){
+            double jerkTime = maxAcceleration/maxJerk;
+            // Fastest peak when full acceleration is reached: peak^2/a + peak*a/j = distance
+            peak = maxAcceleration*(-jerkTime + Math.sqrt(jerkTime*jerkTime + 4*distance/maxAcceleration))/2;
+
+            // Full acceleration isn't reached: peak*2*sqrt(peak/j) = distance
+            if(peak < maxAcceleration*jerkTime) peak = Math.pow(distance*Math.sqrt(maxJerk)/2, 2.0/3);
+        }
+
+        // Shape of the speed-up phase
+        double peakAcceleration, jerkTime, constantTime;
+        if(peak >= maxAcceleration*maxAcceleration/maxJerk){
+            peakAcceleration = maxAcceleration;
+            jerkTime = maxAcceleration/maxJerk;
+            constantTime = peak/maxAcceleration - jerkTime;
+        }else{
+            peakAcceleration = Math.sqrt(peak*maxJerk);
+            jerkTime = Math.sqrt(peak/maxJerk);
+            constantTime = 0;
+        }
+
+        double cruiseTime = peak > 0 ? (distance - 2*accelerationDistance(peak, maxAcceleration, maxJerk))/peak : 0;
+        double jerk = jerkTime > 0 ? peakAcceleration/jerkTime : 0;
+
+        setSegment(0, jerkTime, jerk);
+        setSegment(1, constantTime, 0);
+        setSegment(2, jerkTime, -jerk);
+        setSegment(3, Math.max(cruiseTime, 0), 0);
+        setSegment(4, jerkTime, -jerk);
+        setSegment(5, constantTime, 0);
+        setSegment(6, jerkTime, jerk);
+
+        // Acceleration at the start of each segment (set directly so a trapezoid's instant jumps work)
+        double[] segmentAccelerations = new double[]{0, peakAcceleration, peakAcceleration, 0, 0, -peakAcceleration, -peakAcceleration, 0};
+
+        for(int i = 0; i < SEGMENTS; i++){
+            double t = durations[i];
+            double a = segmentAccelerations[i];
+
+            accelerations[i] = a;
+            startTimes[i + 1] = startTimes[i] + t;
+            positions[i + 1] = positions[i] + velocities[i]*t + a*t*t/2 + jerks[i]*t*t*t/6;
+            velocities[i + 1] = velocities[i] + a*t + jerks[i]*t*t/2;
+        }
+        accelerations[SEGMENTS] = 0;
+
+        // Clean up rounding so the profile ends exactly at rest on the target
+        positions[SEGMENTS] = distance;
+        velocities[SEGMENTS] = 0;
+    }
+
+    // Distance covered while speeding up from rest to a peak velocity
+    private static double accelerationDistance(double peak, double maxAcceleration, double maxJerk){
+        double time;
+        if(peak >= maxAcceleration*maxAcceleration/maxJerk) time = peak/maxAcceleration + maxAcceleration/maxJerk;
+        else time = 2*Math.sqrt(peak/maxJerk);
+
+        // The speed-up phase is symmetric, so the average velocity is half the peak
+        return peak*time/2;
+    }
+
+    private void setSegment(int i, double duration, double jerk){
+        durations[i] = duration;
+        jerks[i] = duration > 0 ? jerk : 0;
+    }
+
+    // Total time the move takes (in seconds)
+    public double getDuration(){ return startTimes[SEGMENTS]; }
+
+    // Total signed distance
+    public double getDistance(){ return sign*positions[SEGMENTS]; }
+
+    // Get {position, velocity, acceleration} t seconds into the move (without allocating)
+    public void sample(double t, double[] out){
+        if(t <= 0){
+            out[0] = 0;
+            out[1] = 0;
+            out[2] = 0;
+            return;
+        }
+
+        if(t >= getDuration()){
+            out[0] = sign*positions[SEGMENTS];
+            out[1] = 0;
+            out[2] = 0;
+            return;
+        }
+
+        int i = 0;
+        while(i < SEGMENTS - 1 && t >= startTimes[i + 1]) i++;
+
+        double dt = t - startTimes[i];
+        double j = jerks[i];
+        double a = accelerations[i];
+
+        out[0] = sign*(positions[i] + velocities[i]*dt + a*dt*dt/2 + j*dt*dt*dt/6);
+        out[1] = sign*(velocities[i] + a*dt + j*dt*dt/2);
+        out[2] = sign*(a + j*dt);
+    }
+
+    // Limits for a profile (units per second, per second squared, per second cubed)
+    public static class Constraints {
+        public double maxVelocity;
+        public double maxAcceleration;
+        public double maxJerk;
+
+        // Trapezoidal profile (no jerk limit)
+        public Constraints(double maxVelocity, double maxAcceleration){
+            this(maxVelocity, maxAcceleration, Double.POSITIVE_INFINITY);
+        }
+
+        // S-curve profile
+        public Constraints(double maxVelocity, double maxAcceleration, double maxJerk){
+            this.maxVelocity = maxVelocity;
+            this.maxAcceleration = maxAcceleration;
+            this.maxJerk = maxJerk;
+        }
+    }
+
+}
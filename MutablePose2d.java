@@ -0,0 +1,77 @@
+/*
+Mutable Pose2d
+Position and heading (x, y, phi) that is changed in place, so a loop can keep one and reuse it every cycle without
+allocating (e.g. Odometry.getPose(MutablePose2d) and the setpoint overloads in ControlledDrivetrain)
+Every method works on this pose and returns it, so calls can be chained: drivetrain.setPosition(target.set(x, y, 0))
+Not thread-safe, use Pose2d to hand a pose to another thread
+*/
+
+package org.firstinspires.ftc.teamcode.api;
+
+public class MutablePose2d {
+
+    public double x;
+    public double y;
+    public double phi;
+
+    public MutablePose2d(){}
+
+    public MutablePose2d(double x, double y, double phi){
+        set(x, y, phi);
+    }
+
+    public MutablePose2d set(double x, double y, double phi){
+        this.x = x;
+        this.y = y;
+        this.phi = phi;
+        return this;
+    }
+
+    public MutablePose2d set(Pose2d pose){
+        return set(pose.x, pose.y, pose.phi);
+    }
+
+    public MutablePose2d set(MutablePose2d pose){
+        return set(pose.x, pose.y, pose.phi);
+    }
+
+    // Move with a field-frame velocity for dt seconds
+    public MutablePose2d add(Twist2d twist, double dt){
+        return set(x + twist.dx*dt, y + twist.dy*dt, phi + twist.dphi*dt);
+    }
+
+    public MutablePose2d add(MutableTwist2d twist, double dt){
+        return set(x + twist.dx*dt, y + twist.dy*dt, phi + twist.dphi*dt);
+    }
+
+    // Rotate about the origin (in radians, the same way the heading increases: clockwise seen from above)
+    public MutablePose2d rotate(double angle){
+        double sin = Math.sin(angle);
+        double cos = Math.cos(angle);
+        return set(x*cos - y*sin, x*sin + y*cos, phi + angle);
+    }
+
+    // Change from another pose to this one, written to out (the heading goes the short way around)
+    public MutableTwist2d minus(MutablePose2d other, MutableTwist2d out){
+        return out.set(x - other.x, y - other.y, Angles.wrap(phi - other.phi));
+    }
+
+    // Straight-line distance to a point
+    public double distanceTo(double x, double y){
+        return Math.hypot(this.x - x, this.y - y);
+    }
+
+    public double distanceTo(MutablePose2d other){
+        return distanceTo(other.x, other.y);
+    }
+
+    // Immutable copy
+    public Pose2d toPose2d(){
+        return new Pose2d(x, y, phi);
+    }
+
+    public String toString(){
+        return "(" + x + ", " + y + ", " + phi + ")";
+    }
+
+}
@@ -0,0 +1,58 @@
+/*
+Mutable Twist2d
+Field-frame velocity or change in pose (dx, dy, dphi) that is changed in place, so loops can reuse one every cycle
+Every method works on this twist and returns it, not thread-safe (use Twist2d to hand one to another thread)
+*/
+
+package org.firstinspires.ftc.teamcode.api;
+
+public class MutableTwist2d {
+
+    public double dx;
+    public double dy;
+    public double dphi;
+
+    public MutableTwist2d(){}
+
+    public MutableTwist2d(double dx, double dy, double dphi){
+        set(dx, dy, dphi);
+    }
+
+    public MutableTwist2d set(double dx, double dy, double dphi){
+        this.dx = dx;
+        this.dy = dy;
+        this.dphi = dphi;
+        return this;
+    }
+
+    public MutableTwist2d set(Twist2d twist){
+        return set(twist.dx, twist.dy, twist.dphi);
+    }
+
+    public MutableTwist2d set(MutableTwist2d twist){
+        return set(twist.dx, twist.dy, twist.dphi);
+    }
+
+    public MutableTwist2d add(MutableTwist2d other){
+        return set(dx + other.dx, dy + other.dy, dphi + other.dphi);
+    }
+
+    public MutableTwist2d scale(double scale){
+        return set(dx*scale, dy*scale, dphi*scale);
+    }
+
+    // Translational speed/distance
+    public double getNorm(){
+        return Math.hypot(dx, dy);
+    }
+
+    // Immutable copy
+    public Twist2d toTwist2d(){
+        return new Twist2d(dx, dy, dphi);
+    }
+
+    public String toString(){
+        return "(" + dx + ", " + dy + ", " + dphi + ")";
+    }
+
+}
@@ -13,9 +13,13 @@ import com.qualcomm.robotcore.hardware.HardwareMap;
 
 public class Odometry implements Runnable {
     // Run/Stop Odometry thread
-    private boolean isRunning = true;
+    private volatile boolean isRunning = true;
     // Amount of time to wait for hardware cycles
     private int cycleTime;
+    // Keeps the update loop on a fixed-rate schedule
+    public LoopScheduler scheduler;
+    // Source of timestamps and loop timing
+    private RobotClock clock = RobotClock.getDefault();
 
     // Encoder "dead" wheels (Right, Left, and Back)
     public DcMotorX wheelR, wheelL, wheelB;
@@ -23,16 +27,59 @@ public class Odometry implements Runnable {
     private double backDistancePerRadian;
     // Width between the left and right encoders
     private double width;
+    // Correction factors for each encoder's distance (Right, Left, Back)
+    private double scaleR = 1;
+    private double scaleL = 1;
+    private double scaleB = 1;
+    // Method used to turn wheel displacements into a change in position
+    public Integrator integrator = Integrator.ARC;
 
     private double lastR;
     private double lastL;
     private double lastB;
+    // Reused for each cycle's encoder readings (R, L, B)
+    private final double[] encoders = new double[3];
+
+    // Logs every encoder reading (null when not recording)
+    private EncoderRecorder recorder = null;
+
+    // IMU heading to blend into the dead-wheel heading (null to use dead wheels only)
+    private ImuHeading imu = null;
+    // Fraction of the IMU/odometry heading difference corrected per IMU sample (0-1)
+    private double imuGain;
+    // Difference between the IMU's zero and odometry's zero, found from the first sample
+    private double imuOffset;
+    private boolean imuAligned = false;
+    // Reused to read IMU samples and past poses without allocating
+    private final ImuHeading.Sample imuSample = new ImuHeading.Sample();
+    private long lastImuCount = 0;
+    private final double[] pastPose = new double[3];
 
     // Position coordinates (x, y, heading [phi])
+    // Only the odometry thread should touch these, other threads should read getPose()
     public double x;
     public double y;
     public double phi;
 
+    // Last published pose, guarded by a sequence lock so readers never block or see a half-written pose
+    // The version is odd while a write is in progress
+    private volatile long version = 0;
+    private volatile double publishedX;
+    private volatile double publishedY;
+    private volatile double publishedPhi;
+    private volatile long publishedTime;
+    private volatile long publishedSequence;
+    // Published field-frame velocity and acceleration
+    private volatile double publishedVx, publishedVy, publishedVphi;
+    private volatile double publishedAx, publishedAy, publishedAphi;
+    // Number of poses published so far
+    private long sequence = 0;
+
+    // Every published pose, for looking up where the robot was at a past time
+    public final PoseHistory history = new PoseHistory(1024);
+    // Estimates velocity and acceleration from the published poses
+    private MotionEstimator motion = new MotionEstimator();
+
     public long actualTime;
 
     public Odometry(DcMotorX wheelR, DcMotorX wheelL, DcMotorX wheelB, int cycleTime, double backDistancePerRadian, double width, double x0, double y0, double phi0){
@@ -50,6 +97,83 @@ public class Odometry implements Runnable {
         this.phi = phi0;
 
         this.actualTime = cycleTime;
+        this.scheduler = new LoopScheduler(cycleTime);
+
+        publish(clock.nanoTime());
+    }
+
+    // Constructor using saved/calibrated geometry
+    public Odometry(DcMotorX wheelR, DcMotorX wheelL, DcMotorX wheelB, int cycleTime, OdometryConfig config, double x0, double y0, double phi0){
+        this(wheelR, wheelL, wheelB, cycleTime, config.backDistancePerRadian, config.width, x0, y0, phi0);
+        configure(config);
+    }
+
+    // Switch to new geometry
+    public synchronized void configure(OdometryConfig config){
+        width = config.width;
+        backDistancePerRadian = config.backDistancePerRadian;
+        scaleR = config.scaleR;
+        scaleL = config.scaleL;
+        scaleB = config.scaleB;
+    }
+
+    // Start/stop logging encoder readings (pass null to stop)
+    public synchronized void setRecorder(EncoderRecorder recorder){
+        this.recorder = recorder;
+    }
+
+    // Correct heading drift with an IMU (complementary filter)
+    // A gain of ~0.02-0.1 trusts the dead wheels over short turns and the IMU over the long run
+    public synchronized void setHeadingFusion(ImuHeading imu, double gain){
+        this.imu = imu;
+        this.imuGain = gain;
+        this.imuAligned = false;
+    }
+
+    // Blend the newest IMU sample (if there is one) into the heading
+    private void fuseHeading(){
+        imu.getSample(imuSample);
+        if(imuSample.count == lastImuCount) return;
+        lastImuCount = imuSample.count;
+
+        // Compare against where odometry thought the robot was pointing when the IMU took its reading
+        double odometryPhi = history.getPose(imuSample.time, pastPose) ? pastPose[2] : phi;
+
+        if(!imuAligned){
+            // Line the IMU's zero up with the current odometry heading
+            imuOffset = odometryPhi - imuSample.heading;
+            imuAligned = true;
+            return;
+        }
+
+        double error = Angles.wrap(imuSample.heading + imuOffset - odometryPhi);
+        phi += imuGain * error;
+    }
+
+    // Change how velocity and acceleration are estimated
+    public synchronized void setMotionEstimator(MotionEstimator motion){
+        this.motion = motion;
+    }
+
+    // Take timestamps and run the update loop on a different clock
+    public synchronized void setClock(RobotClock clock){
+        this.clock = clock;
+        scheduler.setClock(clock);
+    }
+
+    public RobotClock getClock(){ return clock; }
+
+    // Record the loop's timing as "odometry period/work" and each dead wheel's reads as "wheelR/wheelL/wheelB read"
+    public void setLatencyMonitor(LatencyMonitor monitor){
+        scheduler.setLatencyMonitor(monitor, "odometry");
+        if(wheelR != null) wheelR.setLatencyMonitor(monitor, "wheelR");
+        if(wheelL != null) wheelL.setLatencyMonitor(monitor, "wheelL");
+        if(wheelB != null) wheelB.setLatencyMonitor(monitor, "wheelB");
+    }
+
+    // Run the update loop at a set frequency (in Hz) instead of the constructor's cycle time
+    public void setFrequency(double frequency){
+        scheduler.setFrequency(frequency);
     }
 
     public double arcdS(double dR, double dL, double dphi){
@@ -62,16 +186,54 @@ public class Odometry implements Runnable {
         }
     }
 
+    // sin(x)/x, using a Taylor series near 0 to avoid dividing by ~0
+    public static double sinc(double x){
+        if(Math.abs(x) < 1e-3){
+            double x2 = x*x;
+            return 1 - x2/6 + x2*x2/120;
+        }
+
+        return Math.sin(x)/x;
+    }
+
+    // (1 - cos(x))/x, using a Taylor series near 0 to avoid losing precision
+    public static double versinc(double x){
+        if(Math.abs(x) < 1e-3){
+            double x2 = x*x;
+            return x/2 - x*x2/24 + x*x2*x2/720;
+        }
+
+        return (1 - Math.cos(x))/x;
+    }
+
     public void update() {
-        long start = System.currentTimeMillis();
+        long timestamp = clock.nanoTime();
 
-        double R = wheelR.getPosition();
-        double L = wheelL.getPosition();
-        double B = wheelB.getPosition();
+        readEncoders(encoders);
+        update(encoders[0], encoders[1], encoders[2], timestamp);
 
-        double dR = R - lastR;
-        double dL = L - lastL;
-        double dB = B - lastB;
+        actualTime = (clock.nanoTime() - timestamp)/1000000L;
+    }
+
+    // Read the dead wheels into {R, L, B}
+    public void readEncoders(double[] out){
+        // Read all three encoders from one bulk read (if the wheels share a cache)
+        wheelR.invalidateCache();
+        wheelL.invalidateCache();
+        wheelB.invalidateCache();
+
+        out[0] = wheelR.getPosition();
+        out[1] = wheelL.getPosition();
+        out[2] = wheelB.getPosition();
+    }
+
+    // Update position from a set of encoder readings (R, L, B) taken at a clock timestamp (nanoseconds)
+    public synchronized void update(double R, double L, double B, long timestamp) {
+        if(recorder != null) recorder.record(timestamp, R, L, B);
+
+        double dR = (R - lastR) * scaleR;
+        double dL = (L - lastL) * scaleL;
+        double dB = (B - lastB) * scaleB;
 
         lastR = R;
         lastL = L;
@@ -80,52 +242,250 @@ public class Odometry implements Runnable {
         // Calculate change in heading
         double dphi = (dL - dR) / width;
 
-        // Use this to find linear and perpendicular motion
-        double dS = arcdS(dR, dL, dphi);
+        // Perpendicular motion (back wheel travel not caused by rotation)
         double dP = dB - backDistancePerRadian * dphi;
 
-        // Add components of the linear and perpendicular motion to update position
-        x += dS * Math.sin(phi + dphi/2) - dP * Math.cos(phi + dphi/2);
-        y += -dS * Math.cos(phi + dphi/2) - dP * Math.sin(phi + dphi/2);
+        if(integrator == Integrator.POSE_EXPONENTIAL){
+            // Assume the robot moved with constant velocity and turn rate over the cycle (an exact twist)
+            double dS = (dR + dL)/2;
+            double a = sinc(dphi);
+            double b = versinc(dphi);
+
+            // Displacement in the robot's frame at the start of the cycle
+            double dF = dS * a + dP * b;
+            double dN = dP * a - dS * b;
+
+            x += dF * Math.sin(phi) - dN * Math.cos(phi);
+            y += -dF * Math.cos(phi) - dN * Math.sin(phi);
+        }else{
+            // Use this to find linear motion
+            double dS = arcdS(dR, dL, dphi);
+
+            // Add components of the linear and perpendicular motion to update position
+            x += dS * Math.sin(phi + dphi/2) - dP * Math.cos(phi + dphi/2);
+            y += -dS * Math.cos(phi + dphi/2) - dP * Math.sin(phi + dphi/2);
+        }
+
         phi += dphi;
 
-        actualTime = System.currentTimeMillis() - start;
+        if(imu != null) fuseHeading();
+
+        publish(timestamp);
+    }
+
+    // Use the wheels' current positions as the starting point for tracking
+    public void startTracking(){
+        startTracking(wheelR.getPosition(), wheelL.getPosition(), wheelB.getPosition(), clock.nanoTime());
+    }
+
+    // Use a set of encoder readings as the starting point for tracking
+    public synchronized void startTracking(double R, double L, double B, long timestamp){
+        if(recorder != null) recorder.record(timestamp, R, L, B);
+
+        lastR = R;
+        lastL = L;
+        lastB = B;
     }
 
     public void run(){
-        lastR = wheelR.getPosition();
-        lastL = wheelL.getPosition();
-        lastB = wheelB.getPosition();
+        startTracking();
+
+        scheduler.start();
 
         // Run the thread indefinitely
         while(isRunning){
             // Update position coordinate
             update();
 
-            if(actualTime < cycleTime){
-                try {
-                    Thread.sleep(cycleTime - actualTime);
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                }
+            try {
+                // Wait for the next cycle's deadline
+                scheduler.sync();
+            } catch (InterruptedException e) {
+                e.printStackTrace();
             }
 
         }
 
     }
 
-    public void reset(){
+    // Make the current position visible to other threads (writers must hold the lock)
+    private void publish(long timestamp){
+        motion.update(timestamp, x, y, phi);
+
+        version++;
+
+        publishedX = x;
+        publishedY = y;
+        publishedPhi = phi;
+        publishedTime = timestamp;
+        publishedSequence = sequence++;
+
+        publishedVx = motion.getVelocity(0);
+        publishedVy = motion.getVelocity(1);
+        publishedVphi = motion.getVelocity(2);
+        publishedAx = motion.getAcceleration(0);
+        publishedAy = motion.getAcceleration(1);
+        publishedAphi = motion.getAcceleration(2);
+
+        version++;
+
+        history.add(timestamp, x, y, phi);
+    }
+
+    // Get a consistent snapshot of the latest position (lock-free, safe to call from any thread)
+    public Pose getPose(){
+        while(true){
+            long v = version;
+
+            // A write is in progress, try again
+            if((v & 1) != 0) continue;
+
+            double x = publishedX;
+            double y = publishedY;
+            double phi = publishedPhi;
+            long timestamp = publishedTime;
+            long sequence = publishedSequence;
+
+            // Only use the values if no write started while they were being read
+            if(version == v) return new Pose(x, y, phi, timestamp, sequence);
+        }
+    }
+
+    // Read the latest position into a reused pose without allocating (lock-free), returns its clock timestamp
+    public long getPose(MutablePose2d out){
+        while(true){
+            long v = version;
+            if((v & 1) != 0) continue;
+
+            double x = publishedX;
+            double y = publishedY;
+            double phi = publishedPhi;
+            long timestamp = publishedTime;
+
+            if(version != v) continue;
+
+            out.set(x, y, phi);
+            return timestamp;
+        }
+    }
+
+    // Latest heading in [-pi, pi) (lock-free)
+    public double getHeading(){
+        return Angles.wrap(publishedPhi);
+    }
+
+    // Latest heading without wrapping (keeps counting up/down through full turns, lock-free)
+    public double getContinuousHeading(){
+        return publishedPhi;
+    }
+
+    // Get the latest field-frame velocity {x, y, phi} (units per second)
+    public void getVelocity(double[] out){
+        readMotion(false, out, false);
+    }
+
+    public void getVelocity(MutableTwist2d out){
+        while(true){
+            long v = version;
+            if((v & 1) != 0) continue;
+
+            double vx = publishedVx;
+            double vy = publishedVy;
+            double vphi = publishedVphi;
+
+            if(version != v) continue;
+
+            out.set(vx, vy, vphi);
+            return;
+        }
+    }
+
+    // Get the latest field-frame acceleration {x, y, phi} (units per second squared)
+    public void getAcceleration(double[] out){
+        readMotion(true, out, false);
+    }
+
+    // Get the latest velocity in the robot's frame {forward, sideways, turn rate}
+    public void getRobotVelocity(double[] out){
+        readMotion(false, out, true);
+    }
+
+    // Get the latest acceleration in the robot's frame {forward, sideways, angular} (what an accelerometer would read)
+    public void getRobotAcceleration(double[] out){
+        readMotion(true, out, true);
+    }
+
+    // Read a published motion vector (lock-free, same sequence lock as getPose())
+    private void readMotion(boolean acceleration, double[] out, boolean robotFrame){
+        while(true){
+            long v = version;
+            if((v & 1) != 0) continue;
+
+            double vx = acceleration ? publishedAx : publishedVx;
+            double vy = acceleration ? publishedAy : publishedVy;
+            double vphi = acceleration ? publishedAphi : publishedVphi;
+            double phi = publishedPhi;
+
+            if(version != v) continue;
+
+            if(robotFrame){
+                // Inverse of the rotation used to integrate position
+                out[0] = vx * Math.sin(phi) - vy * Math.cos(phi);
+                out[1] = -vx * Math.cos(phi) - vy * Math.sin(phi);
+            }else{
+                out[0] = vx;
+                out[1] = vy;
+            }
+            out[2] = vphi;
+
+            return;
+        }
+    }
+
+    public synchronized void reset(){
         x = 0;
         y = 0;
         phi = 0;
+
+        // Don't interpolate or differentiate across the jump, and line the IMU back up with the new heading
+        history.clear();
+        motion.reset();
+        imuAligned = false;
+        publish(clock.nanoTime());
     }
 
+    // Move to a new position (also takes a {x, y, phi} array)
     public void reset(double... coords){
-        x = coords[0];
-        y = coords[1];
-        phi = coords[2];
+        reset(coords[0], coords[1], coords[2]);
+    }
+
+    public synchronized void reset(double x, double y, double phi){
+        this.x = x;
+        this.y = y;
+        this.phi = phi;
+
+        history.clear();
+        motion.reset();
+        imuAligned = false;
+        publish(clock.nanoTime());
+    }
+
+    public void reset(Pose2d pose){
+        reset(pose.x, pose.y, pose.phi);
+    }
+
+    public void reset(MutablePose2d pose){
+        reset(pose.x, pose.y, pose.phi);
     }
 
     // Stop the thread
     public void stop(){ isRunning = false; }
+
+    // Ways to integrate wheel displacements into position
+    public static enum Integrator {
+        // Straight step along the heading halfway through the cycle (loses accuracy as cycles get longer)
+        ARC,
+        // Exact SE(2) pose exponential, stays accurate at low update rates
+        POSE_EXPONENTIAL
+    }
 }
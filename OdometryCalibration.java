@@ -0,0 +1,188 @@
+/*
+Odometry Calibration
+Fits track width, back wheel offset and per-wheel scale factors to encoder logs (from EncoderRecorder) of scripted runs
+Each run is given with how far the robot really moved: forward and sideways distance plus rotation, in Odometry's frame
+(heading increases clockwise, the same direction as (dL - dR)/width)
+
+Good runs: several spins in place (e.g. 10 full turns), a few straight drives and strafes measured with a tape
+The fit is two small batch least-squares problems:
+    forward:  (scaleR*dR + scaleL*dL)/2 = forward         heading: scaleL*dL - scaleR*dR - width*rotation = 0
+    back:     scaleB*dB - backDistancePerRadian*rotation = sideways
+
+Command line: java ...api.OdometryCalibration <output file> <log> <forward> <sideways> <rotation> [<log> <forward> <sideways> <rotation> ...]
+*/
+
+package org.firstinspires.ftc.teamcode.api;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class OdometryCalibration {
+
+    // Normal equations for [scaleR, scaleL, width]
+    private final double[][] wheelsAtA = new double[3][3];
+    private final double[] wheelsAtb = new double[3];
+    // Normal equations for [scaleB, backDistancePerRadian]
+    private final double[][] backAtA = new double[2][2];
+    private final double[] backAtb = new double[2];
+
+    // Whether any run pins down the scale of the side wheels/back wheel
+    private boolean hasForward = false;
+    private boolean hasSideways = false;
+
+    // Every run's {dR, dL, dB, forward, sideways, rotation}, kept for reporting fit quality
+    private List<double[]> runs = new ArrayList<>();
+
+    // Add a run from its total encoder travel (dR, dL, dB) and the robot's true motion
+    public void addRun(double dR, double dL, double dB, double forward, double sideways, double rotation){
+        // Forward row: 0.5*dR*scaleR + 0.5*dL*scaleL = forward
+        addRow(wheelsAtA, wheelsAtb, new double[]{0.5*dR, 0.5*dL, 0}, forward);
+        // Heading row: -dR*scaleR + dL*scaleL - rotation*width = 0
+        addRow(wheelsAtA, wheelsAtb, new double[]{-dR, dL, -rotation}, 0);
+        // Back wheel row: dB*scaleB - rotation*backDistancePerRadian = sideways
+        addRow(backAtA, backAtb, new double[]{dB, -rotation}, sideways);
+
+        if(forward != 0) hasForward = true;
+        if(sideways != 0) hasSideways = true;
+
+        runs.add(new double[]{dR, dL, dB, forward, sideways, rotation});
+    }
+
+    // Add a run from a log file (uses the first and last readings)
+    public void addRun(File log, double forward, double sideways, double rotation) throws IOException {
+        EncoderReplay replay = new EncoderReplay(log);
+        if(!replay.next()) throw new IOException(log + " has no readings");
+
+        double R0 = replay.getR(), L0 = replay.getL(), B0 = replay.getB();
+        while(replay.next());
+
+        addRun(replay.getR() - R0, replay.getL() - L0, replay.getB() - B0, forward, sideways, rotation);
+    }
+
+    // Solve for the geometry that best fits every run
+    public OdometryConfig solve(){
+        if(runs.isEmpty()) throw new IllegalStateException("No calibration runs added");
+
+        double[][] A = copy(wheelsAtA);
+        double[] b = wheelsAtb.clone();
+        // Without a measured straight run the scale can't be found, so keep the side wheels' nominal scale
+        if(!hasForward){
+            addRow(A, b, new double[]{1, 0, 0}, 1);
+            addRow(A, b, new double[]{0, 1, 0}, 1);
+        }
+        double[] wheels = solve(A, b);
+
+        A = copy(backAtA);
+        b = backAtb.clone();
+        // Same for the back wheel without a measured strafe
+        if(!hasSideways) addRow(A, b, new double[]{1, 0}, 1);
+        double[] back = solve(A, b);
+
+        OdometryConfig config = new OdometryConfig(wheels[2], back[1]);
+        config.scaleR = wheels[0];
+        config.scaleL = wheels[1];
+        config.scaleB = back[0];
+
+        return config;
+    }
+
+    // Root-mean-square position (forward/sideways) and heading errors of a configuration over every run
+    public double[] getResiduals(OdometryConfig config){
+        double position = 0;
+        double heading = 0;
+
+        for(double[] run : runs){
+            double dR = run[0]*config.scaleR, dL = run[1]*config.scaleL, dB = run[2]*config.scaleB;
+            double rotation = (dL - dR)/config.width;
+
+            double forwardError = (dR + dL)/2 - run[3];
+            double sidewaysError = dB - config.backDistancePerRadian*rotation - run[4];
+            double headingError = rotation - run[5];
+
+            position += forwardError*forwardError + sidewaysError*sidewaysError;
+            heading += headingError*headingError;
+        }
+
+        return new double[]{Math.sqrt(position/runs.size()), Math.sqrt(heading/runs.size())};
+    }
+
+    // Accumulate one equation (row . unknowns = value) into the normal equations
+    private static void addRow(double[][] AtA, double[] Atb, double[] row, double value){
+        for(int i = 0; i < row.length; i++){
+            for(int j = 0; j < row.length; j++){
+                AtA[i][j] += row[i]*row[j];
+            }
+            Atb[i] += row[i]*value;
+        }
+    }
+
+    // Solve a small linear system with Gaussian elimination (partial pivoting)
+    private static double[] solve(double[][] A, double[] b){
+        int n = b.length;
+
+        for(int col = 0; col < n; col++){
+            int pivot = col;
+            for(int row = col + 1; row < n; row++){
+                if(Math.abs(A[row][col]) > Math.abs(A[pivot][col])) pivot = row;
+            }
+
+            if(Math.abs(A[pivot][col]) < 1e-12){
+                throw new IllegalStateException("Calibration runs don't determine every parameter (add spins and straight runs)");
+            }
+
+            double[] tempRow = A[col]; A[col] = A[pivot]; A[pivot] = tempRow;
+            double temp = b[col]; b[col] = b[pivot]; b[pivot] = temp;
+
+            for(int row = col + 1; row < n; row++){
+                double f = A[row][col]/A[col][col];
+                for(int k = col; k < n; k++) A[row][k] -= f*A[col][k];
+                b[row] -= f*b[col];
+            }
+        }
+
+        double[] x = new double[n];
+        for(int row = n - 1; row >= 0; row--){
+            double sum = b[row];
+            for(int k = row + 1; k < n; k++) sum -= A[row][k]*x[k];
+            x[row] = sum/A[row][row];
+        }
+
+        return x;
+    }
+
+    private static double[][] copy(double[][] A){
+        double[][] copy = new double[A.length][];
+        for(int i = 0; i < A.length; i++) copy[i] = A[i].clone();
+        return copy;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if(args.length < 5 || (args.length - 1) % 4 != 0){
+            System.out.println("Usage: OdometryCalibration <output file> <log> <forward> <sideways> <rotation> [...]");
+            return;
+        }
+
+        OdometryCalibration calibration = new OdometryCalibration();
+
+        for(int i = 1; i < args.length; i += 4){
+            calibration.addRun(
+                    new File(args[i]),
+                    Double.parseDouble(args[i + 1]),
+                    Double.parseDouble(args[i + 2]),
+                    Double.parseDouble(args[i + 3])
+            );
+        }
+
+        OdometryConfig config = calibration.solve();
+        double[] residuals = calibration.getResiduals(config);
+
+        System.out.println(config);
+        System.out.printf("RMS position error: %.4f, RMS heading error: %.6f rad%n", residuals[0], residuals[1]);
+
+        config.save(new File(args[0]));
+        System.out.println("Saved to " + args[0]);
+    }
+
+}
@@ -0,0 +1,106 @@
+/*
+Odometry Configuration
+Odometry geometry that can be saved to and loaded from a properties file (see OdometryCalibration for fitting these values)
+*/
+
+package org.firstinspires.ftc.teamcode.api;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+public class OdometryConfig {
+
+    // Where the robot controller keeps the fitted values
+    public static final File DEFAULT_FILE = new File("/sdcard/FIRST/odometry.properties");
+
+    // Measured geometry of the example robot, used when nothing has been fitted yet (the back wheel reads negative
+    // distance as the heading increases, so every OpMode has to use the same sign)
+    public static final double DEFAULT_WIDTH = 40.8;
+    public static final double DEFAULT_BACK_DISTANCE_PER_RADIAN = -41.577/(2*Math.PI);
+
+    // Width between the left and right encoders
+    public double width;
+    // Distance read by the back encoder per radian of rotation
+    public double backDistancePerRadian;
+    // Correction factors for each encoder's distance per revolution (Right, Left, Back)
+    public double scaleR = 1;
+    public double scaleL = 1;
+    public double scaleB = 1;
+
+    public OdometryConfig(double width, double backDistancePerRadian){
+        this.width = width;
+        this.backDistancePerRadian = backDistancePerRadian;
+    }
+
+    // Load a saved configuration
+    public static OdometryConfig load(File file) throws IOException {
+        Properties properties = new Properties();
+        InputStream in = new FileInputStream(file);
+
+        try {
+            properties.load(in);
+        } finally {
+            in.close();
+        }
+
+        OdometryConfig config = new OdometryConfig(
+                getDouble(properties, "width"),
+                getDouble(properties, "backDistancePerRadian")
+        );
+
+        config.scaleR = Double.parseDouble(properties.getProperty("scaleR", "1"));
+        config.scaleL = Double.parseDouble(properties.getProperty("scaleL", "1"));
+        config.scaleB = Double.parseDouble(properties.getProperty("scaleB", "1"));
+
+        return config;
+    }
+
+    // Load a saved configuration, or fall back to hand-measured values if there isn't a usable one
+    public static OdometryConfig load(File file, double width, double backDistancePerRadian){
+        if(file.exists()){
+            try {
+                return load(file);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+
+        return new OdometryConfig(width, backDistancePerRadian);
+    }
+
+    // Save the configuration
+    public void save(File file) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("width", Double.toString(width));
+        properties.setProperty("backDistancePerRadian", Double.toString(backDistancePerRadian));
+        properties.setProperty("scaleR", Double.toString(scaleR));
+        properties.setProperty("scaleL", Double.toString(scaleL));
+        properties.setProperty("scaleB", Double.toString(scaleB));
+
+        OutputStream out = new FileOutputStream(file);
+
+        try {
+            properties.store(out, "Odometry geometry");
+        } finally {
+            out.close();
+        }
+    }
+
+    private static double getDouble(Properties properties, String key) throws IOException {
+        String value = properties.getProperty(key);
+        if(value == null) throw new IOException("Missing " + key + " in odometry config");
+
+        return Double.parseDouble(value);
+    }
+
+    public String toString(){
+        return "width=" + width + " backDistancePerRadian=" + backDistancePerRadian +
+                " scaleR=" + scaleR + " scaleL=" + scaleL + " scaleB=" + scaleB;
+    }
+
+}
@@ -0,0 +1,186 @@
+/*
+Path
+Route through a list of waypoints {x, y, phi} for ControlledDrivetrain.followPath()
+The route is either straight lines between waypoints or a Catmull-Rom spline that passes through every waypoint
+It is resampled once at an even spacing along its length, so finding a point a set distance along the path is a direct index
+(no searching), and finding the closest point only has to look a short way ahead of the last one
+Heading blends from one waypoint's phi to the next, turning the short way
+*/
+
+package org.firstinspires.ftc.teamcode.api;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class Path {
+
+    // Number of pieces each spline segment is split into before resampling
+    private static final int SPLINE_STEPS = 32;
+
+    // Distance between samples along the path
+    public final double spacing;
+
+    // Evenly spaced samples: distance along the path, position, heading and unit direction of travel
+    private final double[] distances;
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] phis;
+    private final double[] tangentXs;
+    private final double[] tangentYs;
+
+    // Distance along the path at which each waypoint is reached
+    private final double[] waypointDistances;
+
+    // Straight lines between the waypoints
+    public static Path polyline(double spacing, double[]... waypoints){
+        return new Path(spacing, waypoints, false);
+    }
+
+    // Smooth curve through the waypoints
+    public static Path spline(double spacing, double[]... waypoints){
+        return new Path(spacing, waypoints, true);
+    }
+
+    private Path(double spacing, double[][] waypoints, boolean smooth){
+        if(waypoints.length < 2) throw new IllegalArgumentException("A path needs at least 2 waypoints");
+        if(spacing <= 0) throw new IllegalArgumentException("Path spacing must be positive");
+
+        this.spacing = spacing;
+
+        // Headings made continuous so blending between waypoints turns the short way
+        double[] headings = new double[waypoints.length];
+        headings[0] = waypoints[0][2];
+        for(int i = 1; i < waypoints.length; i++){
+            headings[i] = headings[i - 1] + Angles.wrap(waypoints[i][2] - headings[i - 1]);
+        }
+
+        // Densely traced path (one point per waypoint for lines, several per segment for splines)
+        List<double[]> trace = new ArrayList<>();
+        waypointDistances = new double[waypoints.length];
+        double length = 0;
+        trace.add(new double[]{waypoints[0][0], waypoints[0][1], headings[0], 0});
+
+        for(int i = 0; i < waypoints.length - 1; i++){
+            int steps = smooth ? SPLINE_STEPS : 1;
+
+            for(int k = 1; k <= steps; k++){
+                double t = 1.0*k/steps;
+                double x, y;
+
+                if(smooth){
+                    // Neighbouring waypoints shape the curve, the ends repeat the first/last waypoint
+                    double[] p0 = waypoints[Math.max(i - 1, 0)];
+                    double[] p1 = waypoints[i];
+                    double[] p2 = waypoints[i + 1];
+                    double[] p3 = waypoints[Math.min(i + 2, waypoints.length - 1)];
+
+                    x = catmullRom(p0[0], p1[0], p2[0], p3[0], t);
+                    y = catmullRom(p0[1], p1[1], p2[1], p3[1], t);
+                }else{
+                    x = waypoints[i][0] + (waypoints[i + 1][0] - waypoints[i][0])*t;
+                    y = waypoints[i][1] + (waypoints[i + 1][1] - waypoints[i][1])*t;
+                }
+
+                double[] last = trace.get(trace.size() - 1);
+                length += Math.hypot(x - last[0], y - last[1]);
+                trace.add(new double[]{x, y, headings[i] + (headings[i + 1] - headings[i])*t, length});
+            }
+
+            waypointDistances[i + 1] = length;
+        }
+
+        // Resample at an even spacing
+        int n = Math.max((int) Math.ceil(length/spacing), 1) + 1;
+        distances = new double[n];
+        xs = new double[n];
+        ys = new double[n];
+        phis = new double[n];
+        tangentXs = new double[n];
+        tangentYs = new double[n];
+
+        int j = 0;
+        for(int k = 0; k < n; k++){
+            double s = Math.min(k*spacing, length);
+            while(j < trace.size() - 2 && trace.get(j + 1)[3] < s) j++;
+
+            double[] a = trace.get(j);
+            double[] b = trace.get(j + 1);
+            double segment = b[3] - a[3];
+            double f = segment > 0 ? (s - a[3])/segment : 0;
+
+            distances[k] = s;
+            xs[k] = a[0] + (b[0] - a[0])*f;
+            ys[k] = a[1] + (b[1] - a[1])*f;
+            phis[k] = a[2] + (b[2] - a[2])*f;
+            tangentXs[k] = segment > 0 ? (b[0] - a[0])/segment : 0;
+            tangentYs[k] = segment > 0 ? (b[1] - a[1])/segment : 0;
+        }
+    }
+
+    // Uniform Catmull-Rom interpolation between p1 (t = 0) and p2 (t = 1)
+    private static double catmullRom(double p0, double p1, double p2, double p3, double t){
+        return 0.5*(2*p1 + (-p0 + p2)*t + (2*p0 - 5*p1 + 4*p2 - p3)*t*t + (-p0 + 3*p1 - 3*p2 + p3)*t*t*t);
+    }
+
+    // Total length of the path
+    public double getLength(){ return distances[distances.length - 1]; }
+
+    public int getWaypointCount(){ return waypointDistances.length; }
+
+    // Distance along the path at which a waypoint is reached
+    public double getWaypointDistance(int i){ return waypointDistances[i]; }
+
+    // Index of the sample at or before a distance along the path
+    private int indexOf(double s){
+        int i = (int) (s/spacing);
+        return Math.max(0, Math.min(i, distances.length - 2));
+    }
+
+    // Get {x, y, phi, direction x, direction y} at a distance along the path (without allocating)
+    public void sample(double s, double[] out){
+        s = Math.max(0, Math.min(s, getLength()));
+
+        int i = indexOf(s);
+        double segment = distances[i + 1] - distances[i];
+        double f = segment > 0 ? (s - distances[i])/segment : 0;
+
+        out[0] = xs[i] + (xs[i + 1] - xs[i])*f;
+        out[1] = ys[i] + (ys[i + 1] - ys[i])*f;
+        out[2] = phis[i] + (phis[i + 1] - phis[i])*f;
+        out[3] = tangentXs[i + 1];
+        out[4] = tangentYs[i + 1];
+    }
+
+    // Distance along the path of the point closest to (x, y), only looking between from and from + window
+    // (the robot only moves forward along the path, so the search never has to cover the whole path)
+    public double project(double x, double y, double from, double window){
+        int first = indexOf(Math.max(from, 0));
+        int last = indexOf(from + window);
+
+        double best = from;
+        double bestDistance = Double.POSITIVE_INFINITY;
+
+        for(int i = first; i <= last; i++){
+            double dx = xs[i + 1] - xs[i];
+            double dy = ys[i + 1] - ys[i];
+            double segment = dx*dx + dy*dy;
+
+            // Closest point on this segment
+            double f = segment > 0 ? ((x - xs[i])*dx + (y - ys[i])*dy)/segment : 0;
+            f = Math.max(0, Math.min(1, f));
+
+            double ex = xs[i] + dx*f - x;
+            double ey = ys[i] + dy*f - y;
+            double distance = ex*ex + ey*ey;
+
+            if(distance < bestDistance){
+                bestDistance = distance;
+                best = distances[i] + (distances[i + 1] - distances[i])*f;
+            }
+        }
+
+        // Don't go backwards along the path
+        return Math.max(best, from);
+    }
+
+}
@@ -0,0 +1,26 @@
+/*
+Pose Snapshot
+Immutable position reading published by Odometry, safe to pass between threads
+A Pose2d plus when it was measured, so a reading can go anywhere a Pose2d can (e.g. straight into setPosition())
+*/
+
+package org.firstinspires.ftc.teamcode.api;
+
+public class Pose extends Pose2d {
+
+    // Clock time (nanoseconds, see RobotClock) when the pose was measured
+    public final long timestamp;
+    // Number of odometry updates before this one (increases by one per update, -1 for interpolated poses)
+    public final long sequence;
+
+    public Pose(double x, double y, double phi, long timestamp, long sequence){
+        super(x, y, phi);
+        this.timestamp = timestamp;
+        this.sequence = sequence;
+    }
+
+    public String toString(){
+        return "(" + x + ", " + y + ", " + phi + ") #" + sequence;
+    }
+
+}
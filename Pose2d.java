@@ -0,0 +1,50 @@
+/*
+Pose2d
+Immutable position and heading (x, y, phi), for setpoints and waypoints that are built once and then passed around or
+shared between threads
+Same frame and units as Odometry (heading in radians, increasing clockwise seen from above, see ImuHeading)
+MutablePose2d is the in-place version for loops, and Odometry's Pose is a Pose2d that also carries when it was measured
+*/
+
+package org.firstinspires.ftc.teamcode.api;
+
+public class Pose2d {
+
+    public final double x;
+    public final double y;
+    public final double phi;
+
+    public Pose2d(double x, double y, double phi){
+        this.x = x;
+        this.y = y;
+        this.phi = phi;
+    }
+
+    public Pose2d(MutablePose2d pose){
+        this(pose.x, pose.y, pose.phi);
+    }
+
+    // Pose after moving with a field-frame velocity for dt seconds
+    public Pose2d plus(Twist2d twist, double dt){
+        return new Pose2d(x + twist.dx*dt, y + twist.dy*dt, phi + twist.dphi*dt);
+    }
+
+    // Change from another pose to this one (the heading goes the short way around)
+    public Twist2d minus(Pose2d other){
+        return new Twist2d(x - other.x, y - other.y, Angles.wrap(phi - other.phi));
+    }
+
+    // Straight-line distance to another pose
+    public double distanceTo(Pose2d other){
+        return Math.hypot(x - other.x, y - other.y);
+    }
+
+    public MutablePose2d toMutable(){
+        return new MutablePose2d(x, y, phi);
+    }
+
+    public String toString(){
+        return "(" + x + ", " + y + ", " + phi + ")";
+    }
+
+}
@@ -0,0 +1,113 @@
+/*
+Pose History
+Fixed-size ring buffer of timestamped poses, used to look up where the robot was when a late measurement (vision, slow sensors) was taken
+Poses are stored in primitive arrays so adding one never allocates, and lookups binary search the timestamps
+
+Adding and looking up are synchronized: poses come in at the odometry rate (a few hundred per second), so the lock is
+cheap, and it keeps a lookup from mixing values of a pose with the one overwriting it
+*/
+
+package org.firstinspires.ftc.teamcode.api;
+
+public class PoseHistory {
+
+    private final int capacity;
+
+    // Stored poses (slot = index % capacity)
+    private final long[] times;
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] phis;
+
+    // Total number of poses ever added (the newest pose is at index count - 1)
+    private long count = 0;
+    // Index of the oldest pose that is still valid (moved forward by clear())
+    private long first = 0;
+
+    public PoseHistory(int capacity){
+        this.capacity = capacity;
+
+        times = new long[capacity];
+        xs = new double[capacity];
+        ys = new double[capacity];
+        phis = new double[capacity];
+    }
+
+    // Add the newest pose (timestamps must increase from one pose to the next)
+    public synchronized void add(long time, double x, double y, double phi){
+        int slot = slot(count);
+
+        times[slot] = time;
+        xs[slot] = x;
+        ys[slot] = y;
+        phis[slot] = phi;
+
+        count++;
+    }
+
+    // Forget every stored pose (use when the pose jumps, like after an odometry reset)
+    public synchronized void clear(){
+        first = count;
+    }
+
+    // Find the pose at a past time, interpolating between the two stored poses around it
+    // Fills out with {x, y, phi} and returns false if the time isn't covered by the history
+    public synchronized boolean getPose(long time, double[] out){
+        long end = count;
+        long start = oldest();
+
+        if(end - start < 1 || time < times[slot(start)] || time > times[slot(end - 1)]) return false;
+
+        // Binary search for the last pose taken at or before the requested time
+        long lo = start;
+        long hi = end - 1;
+
+        while(lo < hi){
+            long mid = (lo + hi + 1) >>> 1;
+
+            if(times[slot(mid)] <= time) lo = mid;
+            else hi = mid - 1;
+        }
+
+        int a = slot(lo);
+        int b = slot(Math.min(lo + 1, end - 1));
+
+        long ta = times[a];
+        long tb = times[b];
+        // Fraction of the way from pose a to pose b
+        double f = tb > ta ? (double) (time - ta) / (tb - ta) : 0;
+
+        out[0] = xs[a] + f * (xs[b] - xs[a]);
+        out[1] = ys[a] + f * (ys[b] - ys[a]);
+        out[2] = phis[a] + f * (phis[b] - phis[a]);
+        return true;
+    }
+
+    // Find the pose at a past time, or null if the time isn't covered by the history
+    public Pose getPose(long time){
+        double[] out = new double[3];
+
+        if(getPose(time, out)) return new Pose(out[0], out[1], out[2], time, -1);
+        else return null;
+    }
+
+    // Time of the oldest and newest stored poses (only meaningful when size() > 0)
+    public synchronized long getOldestTime(){ return times[slot(oldest())]; }
+
+    public synchronized long getNewestTime(){ return times[slot(count - 1)]; }
+
+    // Number of poses that can currently be looked up
+    public synchronized int size(){ return (int) (count - oldest()); }
+
+    public int getCapacity(){ return capacity; }
+
+    // Index of the oldest pose that can be looked up
+    private long oldest(){
+        return Math.max(first, count - capacity);
+    }
+
+    private int slot(long index){
+        return (int) (index % capacity);
+    }
+
+}
@@ -0,0 +1,136 @@
+/*
+Relay Auto-Tuner
+Finds PID gains for one coordinate with an Astrom-Hagglund relay test: the output is switched between +amplitude and -amplitude
+whenever the error crosses zero (with a little hysteresis), which makes the robot oscillate around the target at the
+loop's ultimate period Tu. From the oscillation's amplitude a, the ultimate gain is Ku = 4*amplitude/(pi*sqrt(a^2 - hysteresis^2))
+and the gains come from a PD rule for position loops (the default) or Ziegler-Nichols style PID rules
+Used through ControlledDrivetrain.startAutoTune(), but works with any loop (see sim.AutoTuneSim)
+*/
+
+package org.firstinspires.ftc.teamcode.api;
+
+public class RelayAutoTuner {
+
+    // Relay output (the power used to push the robot back and forth)
+    public final double amplitude;
+    // How far past the target the error must go before the relay switches (keeps noise from chattering it)
+    public final double hysteresis;
+    // Number of oscillations to average over (after the first, which is thrown out)
+    public final int cycles;
+    // How the gains are worked out from Ku and Tu
+    public Rule rule = Rule.POSITION;
+
+    private double output = 0;
+    // Time of the last switch to positive output (start of an oscillation), -1 before the first
+    private long cycleStart = -1;
+    private int cyclesSeen = 0;
+    private int cyclesMeasured = 0;
+    // Error extremes over the current oscillation
+    private double max = 0;
+    private double min = 0;
+    private double periodSum = 0;
+    private double amplitudeSum = 0;
+
+    private boolean done = false;
+    private double ultimateGain = 0;
+    private double ultimatePeriod = 0;
+
+    public RelayAutoTuner(double amplitude, double hysteresis, int cycles){
+        if(amplitude <= 0) throw new IllegalArgumentException("Relay amplitude must be positive");
+
+        this.amplitude = amplitude;
+        this.hysteresis = Math.abs(hysteresis);
+        this.cycles = Math.max(cycles, 1);
+    }
+
+    // Relay output for the current error (target - measurement) at a clock time (nanoseconds), 0 once done
+    public double update(double error, long time){
+        if(done) return 0;
+
+        // Start by pushing towards the target
+        if(output == 0) output = error < 0 ? -amplitude : amplitude;
+
+        max = Math.max(max, error);
+        min = Math.min(min, error);
+
+        if(output > 0 && error < -hysteresis){
+            output = -amplitude;
+        }else if(output < 0 && error > hysteresis){
+            output = amplitude;
+
+            // One full oscillation has finished, skip the first since it starts from rest
+            if(cycleStart >= 0 && ++cyclesSeen > 1){
+                periodSum += (time - cycleStart)/1e9;
+                amplitudeSum += (max - min)/2;
+                cyclesMeasured++;
+            }
+
+            cycleStart = time;
+            max = error;
+            min = error;
+
+            if(cyclesMeasured >= cycles) finish();
+        }
+
+        return done ? 0 : output;
+    }
+
+    private void finish(){
+        double a = amplitudeSum/cyclesMeasured;
+
+        ultimatePeriod = periodSum/cyclesMeasured;
+        ultimateGain = 4*amplitude/(Math.PI*Math.sqrt(Math.max(a*a - hysteresis*hysteresis, 1e-12)));
+        done = true;
+    }
+
+    public boolean isDone(){ return done; }
+
+    // Number of oscillations measured so far
+    public int getCyclesMeasured(){ return cyclesMeasured; }
+
+    public double getUltimateGain(){ return ultimateGain; }
+
+    // In seconds
+    public double getUltimatePeriod(){ return ultimatePeriod; }
+
+    // Get {Kp, Ki, Kd} (only valid once done), Ki and Kd are per second like ControlledDrivetrain's
+    public void getGains(double[] out){
+        double Ku = ultimateGain, Tu = ultimatePeriod;
+        double Kp, Ti, Td;
+
+        switch(rule){
+            case POSITION:
+                // Power already sets the robot's speed, so position is integrated by the robot itself and an I term
+                // mostly adds overshoot (a kS feedforward handles the friction an I term would otherwise make up for)
+                Kp = 0.6*Ku;
+                Ti = Double.POSITIVE_INFINITY;
+                Td = Tu/6;
+                break;
+            case CLASSIC:
+                Kp = 0.6*Ku;
+                Ti = Tu/2;
+                Td = Tu/8;
+                break;
+            case SOME_OVERSHOOT:
+                Kp = Ku/3;
+                Ti = Tu/2;
+                Td = Tu/3;
+                break;
+            default:
+                Kp = 0.2*Ku;
+                Ti = Tu/2;
+                Td = Tu/3;
+                break;
+        }
+
+        out[0] = Kp;
+        out[1] = Kp/Ti;
+        out[2] = Kp*Td;
+    }
+
+    // Tuning rules: PD for position loops, and the Ziegler-Nichols style PID rules from most to least aggressive
+    public static enum Rule {
+        POSITION, CLASSIC, SOME_OVERSHOOT, NO_OVERSHOOT
+    }
+
+}
@@ -0,0 +1,72 @@
+/*
+Robot Clock
+Source of time for every loop, timestamp and wait in the API (nanosecond resolution), so control code can run against
+simulated time as well as the wall clock
+RobotClock.REAL is the wall clock (System.nanoTime()/Thread.sleep()), VirtualClock is a steppable clock for simulation
+Objects use the default clock from when they're created (set it with setDefault() before building the robot), or
+setClock() to give one object a different clock
+*/
+
+package org.firstinspires.ftc.teamcode.api;
+
+import java.util.concurrent.TimeUnit;
+
+public abstract class RobotClock {
+
+    // The wall clock
+    public static final RobotClock REAL = new RealClock();
+
+    private static volatile RobotClock defaultClock = REAL;
+
+    // Clock used by objects that aren't given one
+    public static RobotClock getDefault(){ return defaultClock; }
+
+    public static void setDefault(RobotClock clock){
+        if(clock == null) throw new IllegalArgumentException("Default clock can't be null");
+        defaultClock = clock;
+    }
+
+    // Current time in nanoseconds (only differences between readings mean anything, like System.nanoTime())
+    public abstract long nanoTime();
+
+    // Current time in milliseconds (same base as nanoTime())
+    public long millis(){ return nanoTime()/1000000L; }
+
+    // Sleep for some number of nanoseconds
+    public abstract void sleepNanos(long nanos) throws InterruptedException;
+
+    // Sleep for some number of milliseconds
+    public void sleep(long millis) throws InterruptedException {
+        sleepNanos(millis*1000000L);
+    }
+
+    // Wait on a monitor the caller has locked until it's woken with wake() or nanos pass (0 or less waits until woken)
+    // Like Object.wait(), the lock is released while waiting and the wait can end early, so call it in a loop
+    public abstract void waitNanos(Object monitor, long nanos) throws InterruptedException;
+
+    // Wake every thread in waitNanos() on a monitor (the caller must have it locked, like Object.notifyAll())
+    public abstract void wake(Object monitor);
+
+    // Create a thread that runs on this clock (start it as usual)
+    public abstract Thread newThread(Runnable runnable);
+
+    private static class RealClock extends RobotClock {
+
+        public long nanoTime(){ return System.nanoTime(); }
+
+        public void sleepNanos(long nanos) throws InterruptedException {
+            if(nanos > 0) Thread.sleep(nanos/1000000L, (int) (nanos%1000000L));
+        }
+
+        public void waitNanos(Object monitor, long nanos) throws InterruptedException {
+            if(nanos <= 0) monitor.wait();
+            else TimeUnit.NANOSECONDS.timedWait(monitor, nanos);
+        }
+
+        public void wake(Object monitor){ monitor.notifyAll(); }
+
+        public Thread newThread(Runnable runnable){ return new Thread(runnable); }
+
+    }
+
+}
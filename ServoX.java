@@ -18,6 +18,12 @@ public class ServoX {
     // Minimum allowable position
     public double minAngle = Double.MIN_VALUE;
 
+    // Clock used to wait for the servo to move
+    private RobotClock clock = RobotClock.getDefault();
+    // Distributions of the time position reads and writes take (null when not monitored)
+    private LatencyHistogram readLatency = null;
+    private LatencyHistogram writeLatency = null;
+
     // Simple 180 degree servo initialization
     public ServoX(Servo core){ this(core, 180, 180); }
     // 0-x degree servo initialization with custom rotational range
@@ -46,22 +52,41 @@ public class ServoX {
         setAngle(angle);
 
         if(wait > 0){
-            Thread.sleep(wait);
+            clock.sleep(wait);
         }
     }
 
+    // Wait on a different clock
+    public void setClock(RobotClock clock){ this.clock = clock; }
+
+    // Record how long every position read and write takes, as "<name> read" and "<name> write" (null to stop)
+    public void setLatencyMonitor(LatencyMonitor monitor, String name){
+        readLatency = monitor == null ? null : monitor.get(name + " read");
+        writeLatency = monitor == null ? null : monitor.get(name + " write");
+    }
+
     // Set the target angle
     public void setAngle(double angle) {
         // Make sure angle is within acceptable bounds
         if(angle <= maxAngle && angle >= minAngle) {
+            LatencyHistogram latency = writeLatency;
+            long start = latency == null ? 0 : clock.nanoTime();
+
             // Convert angle to 0-1 scale
             core.setPosition(angle / rotationAngle);
+
+            if(latency != null) latency.record(clock.nanoTime() - start);
         }
     }
 
     // Get current servo angle
     public double getAngle(){
-        return core.getPosition() * rotationAngle;
+        LatencyHistogram latency = readLatency;
+        long start = latency == null ? 0 : clock.nanoTime();
+        double position = core.getPosition();
+        if(latency != null) latency.record(clock.nanoTime() - start);
+
+        return position * rotationAngle;
     }
 
 }
@@ -89,48 +89,65 @@ public class TensorFlowX {
 
     // Look for a single detection with given label
     public Recognition recognize(String label){
-        Recognition matched = null;
-        // Get all recognitions
-        List<Recognition> recognitions = getRecognitions();
-
-        // Search list of recognitions for one that matches the label
-        for(Recognition recognition : recognitions){
-            if(recognition.getLabel().equals(label)){
-                matched = recognition;
-                break;
-            }
-        }
+        // Latest recognitions first, then old ones (searched in place, so nothing is copied)
+        List<Recognition> updated = tfod.getUpdatedRecognitions();
+        List<Recognition> old = tfod.getRecognitions();
 
-        return matched;
+        Recognition matched = find(updated, label);
+        return matched != null ? matched : find(old, label);
     }
 
     // Find all matches for a given label
     public List<Recognition> recognizeAll(String label){
-        List<Recognition> matched = new ArrayList<>();
-        // Get all recognitions
-        List<Recognition> recognitions = getRecognitions();
-
-        // Search recognition list for all matches
-        for(Recognition recognition : recognitions){
-            if(recognition.getLabel().equals(label)){
-                matched.add(recognition);
-            }
-        }
+        return recognizeAll(label, new ArrayList<Recognition>());
+    }
+
+    // Fill a list with all matches for a given label (it's cleared first, reuse one list to avoid allocating every frame)
+    public List<Recognition> recognizeAll(String label, List<Recognition> out){
+        out.clear();
 
-        return matched;
+        addMatches(out, tfod.getUpdatedRecognitions(), label);
+        addMatches(out, tfod.getRecognitions(), label);
+
+        return out;
     }
 
     // Get all updated & old recognitions
     public List<Recognition> getRecognitions(){
-        // Get latest recognitions
-        List<Recognition> recs = tfod.getUpdatedRecognitions();
-        if(recs == null) recs = new ArrayList();
+        return getRecognitions(new ArrayList<Recognition>());
+    }
+
+    // Fill a list with all updated & old recognitions (it's cleared first, reuse one list to avoid allocating every frame)
+    public List<Recognition> getRecognitions(List<Recognition> out){
+        out.clear();
+
+        // Latest recognitions, then merge old recognitions
+        addMatches(out, tfod.getUpdatedRecognitions(), null);
+        addMatches(out, tfod.getRecognitions(), null);
 
-        // Merge old recognitions
-        List<Recognition> oldRecs = tfod.getRecognitions();
-        if(oldRecs != null) recs.addAll(oldRecs);
+        return out;
+    }
+
+    // First recognition with a label (indexed, so no iterator is allocated)
+    private static Recognition find(List<Recognition> recognitions, String label){
+        if(recognitions == null) return null;
+
+        for(int i = 0; i < recognitions.size(); i++){
+            Recognition recognition = recognitions.get(i);
+            if(recognition.getLabel().equals(label)) return recognition;
+        }
 
-        return recs;
+        return null;
+    }
+
+    // Add every recognition with a label (or every one, for a null label) to a list
+    private static void addMatches(List<Recognition> out, List<Recognition> recognitions, String label){
+        if(recognitions == null) return;
+
+        for(int i = 0; i < recognitions.size(); i++){
+            Recognition recognition = recognitions.get(i);
+            if(label == null || recognition.getLabel().equals(label)) out.add(recognition);
+        }
     }
 
 }
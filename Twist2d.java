@@ -0,0 +1,46 @@
+/*
+Twist2d
+Immutable velocity or change in pose (dx, dy, dphi) in the field frame, the way Odometry.getVelocity() reports it
+MutableTwist2d is the in-place version for loops
+*/
+
+package org.firstinspires.ftc.teamcode.api;
+
+public class Twist2d {
+
+    public final double dx;
+    public final double dy;
+    public final double dphi;
+
+    public Twist2d(double dx, double dy, double dphi){
+        this.dx = dx;
+        this.dy = dy;
+        this.dphi = dphi;
+    }
+
+    public Twist2d(MutableTwist2d twist){
+        this(twist.dx, twist.dy, twist.dphi);
+    }
+
+    public Twist2d plus(Twist2d other){
+        return new Twist2d(dx + other.dx, dy + other.dy, dphi + other.dphi);
+    }
+
+    public Twist2d times(double scale){
+        return new Twist2d(dx*scale, dy*scale, dphi*scale);
+    }
+
+    // Translational speed/distance
+    public double getNorm(){
+        return Math.hypot(dx, dy);
+    }
+
+    public MutableTwist2d toMutable(){
+        return new MutableTwist2d(dx, dy, dphi);
+    }
+
+    public String toString(){
+        return "(" + dx + ", " + dy + ", " + dphi + ")";
+    }
+
+}
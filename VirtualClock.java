@@ -0,0 +1,192 @@
+/*
+Virtual Clock
+Steppable RobotClock for simulation and tests: time only moves when advance() is called, or by itself once every
+participating thread is sleeping/waiting on the clock, when it jumps straight to the earliest wake-up time
+Because time doesn't pass while code is running, a 30 second autonomous runs through its full control logic in however
+much CPU time the logic itself takes, and every loop sees exactly the timing it asked for
+Threads take part by being started from newThread() or by calling register(). A participant must do all of its sleeping
+and waiting through the clock: one that spins or blocks some other way (e.g. join()) holds time still until it stops
+*/
+
+package org.firstinspires.ftc.teamcode.api;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class VirtualClock extends RobotClock {
+
+    // How often (real milliseconds) a thread waiting on another object's monitor checks whether its time is up
+    private static final int MONITOR_POLL = 1;
+
+    private long time;
+
+    // Threads that time waits for
+    private final Set<Thread> participants = new HashSet<>();
+    // Threads sleeping/waiting on the clock, and how many of them are participants
+    private final List<Waiter> waiters = new ArrayList<>();
+    private int waitingParticipants = 0;
+
+    public VirtualClock(){
+        this(0);
+    }
+
+    // Clock starting at a time in nanoseconds
+    public VirtualClock(long start){
+        this.time = start;
+    }
+
+    public synchronized long nanoTime(){ return time; }
+
+    // Move time forward (waking every thread that is due), e.g. from a single-threaded test stepping the robot itself
+    public synchronized void advance(long nanos){
+        if(nanos < 0) throw new IllegalArgumentException("Time can't go backwards");
+
+        time += nanos;
+        wakeDue();
+    }
+
+    // Make time wait for the calling thread
+    public synchronized void register(){
+        participants.add(Thread.currentThread());
+    }
+
+    // Stop time waiting for the calling thread (do this before blocking outside the clock, e.g. to join() other participants)
+    public synchronized void unregister(){
+        unregister(Thread.currentThread());
+    }
+
+    private synchronized void unregister(Thread thread){
+        participants.remove(thread);
+        advanceIfIdle();
+    }
+
+    public void sleepNanos(long nanos) throws InterruptedException {
+        if(nanos <= 0) return;
+
+        synchronized(this){
+            Waiter waiter = add(this, nanos);
+
+            try {
+                while(!waiter.woken) wait();
+            } finally {
+                if(!waiter.woken) remove(waiter);
+            }
+        }
+    }
+
+    public void waitNanos(Object monitor, long nanos) throws InterruptedException {
+        Waiter waiter;
+        synchronized(this){
+            waiter = add(monitor, nanos <= 0 ? Long.MAX_VALUE : nanos);
+        }
+
+        // The caller holds the monitor, so the clock can't notify it when time runs out without risking a deadlock,
+        // check every so often instead (wake() still notifies right away)
+        try {
+            while(!waiter.woken) monitor.wait(MONITOR_POLL);
+        } finally {
+            synchronized(this){
+                if(!waiter.woken) remove(waiter);
+            }
+        }
+    }
+
+    public void wake(Object monitor){
+        synchronized(this){
+            for(int i = waiters.size() - 1; i >= 0; i--){
+                if(waiters.get(i).monitor == monitor) release(i);
+            }
+        }
+
+        monitor.notifyAll();
+    }
+
+    public Thread newThread(final Runnable runnable){
+        return new Thread(){
+            // Join before the thread runs, so time can't move on before it gets going
+            @Override
+            public synchronized void start(){
+                synchronized(VirtualClock.this){
+                    participants.add(this);
+                }
+                super.start();
+            }
+
+            @Override
+            public void run(){
+                try {
+                    runnable.run();
+                } finally {
+                    unregister(this);
+                }
+            }
+        };
+    }
+
+    // Number of threads time is waiting for
+    public synchronized int getParticipants(){ return participants.size(); }
+
+    // Add a waiter for the calling thread (holding the clock's lock), moving time on if that leaves every participant waiting
+    private Waiter add(Object monitor, long nanos){
+        Waiter waiter = new Waiter();
+        waiter.monitor = monitor;
+        waiter.deadline = nanos == Long.MAX_VALUE || time > Long.MAX_VALUE - nanos ? Long.MAX_VALUE : time + nanos;
+        waiter.participant = participants.contains(Thread.currentThread());
+
+        waiters.add(waiter);
+        if(waiter.participant) waitingParticipants++;
+
+        advanceIfIdle();
+        return waiter;
+    }
+
+    // A waiter stopped waiting by itself (interrupted or a spurious wake-up after being woken)
+    private void remove(Waiter waiter){
+        int i = waiters.indexOf(waiter);
+        if(i < 0) return;
+
+        waiters.remove(i);
+        if(waiter.participant) waitingParticipants--;
+    }
+
+    // Every participant is waiting, so nothing can happen until the next wake-up time: skip to it
+    private void advanceIfIdle(){
+        if(participants.isEmpty() || waitingParticipants < participants.size()) return;
+
+        long next = Long.MAX_VALUE;
+        for(int i = 0; i < waiters.size(); i++) next = Math.min(next, waiters.get(i).deadline);
+
+        // Everyone is waiting to be woken by someone else
+        if(next == Long.MAX_VALUE) return;
+
+        if(next > time) time = next;
+        wakeDue();
+    }
+
+    private void wakeDue(){
+        for(int i = waiters.size() - 1; i >= 0; i--){
+            if(waiters.get(i).deadline <= time) release(i);
+        }
+
+        // Sleepers wait on the clock itself, monitor waiters see the flag on their next check
+        notifyAll();
+    }
+
+    // Mark a waiter as woken (it's counted as running from now on, so time can't move on before it gets to run)
+    private void release(int i){
+        Waiter waiter = waiters.remove(i);
+        waiter.woken = true;
+        if(waiter.participant) waitingParticipants--;
+    }
+
+    // A thread sleeping or waiting on the clock
+    private static class Waiter {
+        Object monitor;
+        long deadline;
+        boolean participant;
+        volatile boolean woken = false;
+    }
+
+}
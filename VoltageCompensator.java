@@ -0,0 +1,125 @@
+/*
+Voltage Compensator
+Samples battery voltage on a slow background thread (the lowest reading of all the hubs, the one that sags first) and works out how much to scale motor power so the motors behave
+as if the battery were at a nominal voltage (e.g. 0.5 power at 12.2 V acts like 0.5 power at 12 V nominal, not less)
+The scale is published as one volatile value, so applying it costs DcMotorX.setPower() a single multiply
+Only motors driven by raw power (runWithoutEncoder) are compensated, the hub already regulates velocity/position modes
+*/
+
+package org.firstinspires.ftc.teamcode.api;
+
+import com.qualcomm.robotcore.hardware.HardwareMap;
+import com.qualcomm.robotcore.hardware.VoltageSensor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class VoltageCompensator implements Runnable {
+
+    // Voltage that gains and powers are tuned at
+    public static final double NOMINAL_VOLTAGE = 12.0;
+    // Readings below this are treated as bad (e.g. a hub that doesn't report voltage)
+    private static final double MIN_VALID_VOLTAGE = 6.0;
+
+    // Every cycle reads all of these and uses the lowest valid reading
+    public VoltageSensor[] sensors;
+    public double nominalVoltage;
+    // Largest boost applied, so a sagging battery can't turn small powers into huge ones
+    public double maxScale = 1.3;
+
+    // Run/Stop the sampling thread
+    private volatile boolean isRunning = true;
+    public LoopScheduler scheduler;
+    // Smooths out the dips from motors starting up
+    private LowPassFilter filter;
+    private boolean hasSample = false;
+
+    // Latest filtered voltage and the power scale from it
+    private volatile double voltage;
+    private volatile double scale = 1;
+
+    // Compensator for a voltage sensor, sampling every cycleTime milliseconds
+    public VoltageCompensator(VoltageSensor sensor, double nominalVoltage, int cycleTime){
+        this(new VoltageSensor[]{sensor}, nominalVoltage, cycleTime);
+    }
+
+    // Compensator for several voltage sensors (e.g. one per hub), sampling every cycleTime milliseconds
+    public VoltageCompensator(VoltageSensor[] sensors, double nominalVoltage, int cycleTime){
+        this.sensors = sensors;
+        this.nominalVoltage = nominalVoltage;
+        this.voltage = nominalVoltage;
+        this.scheduler = new LoopScheduler(cycleTime);
+        this.filter = new LowPassFilter(LowPassFilter.Type.FIRST_ORDER, 0.5);
+    }
+
+    // Compensator sampling every hub's voltage sensor every 100 ms
+    public VoltageCompensator(HardwareMap hardwareMap){
+        this(allSensors(hardwareMap), NOMINAL_VOLTAGE, 100);
+    }
+
+    private static VoltageSensor[] allSensors(HardwareMap hardwareMap){
+        List<VoltageSensor> sensors = new ArrayList<>();
+        for(VoltageSensor sensor : hardwareMap.voltageSensor) sensors.add(sensor);
+
+        if(sensors.isEmpty()) throw new IllegalStateException("No voltage sensors in the hardware map");
+        return sensors.toArray(new VoltageSensor[0]);
+    }
+
+    // Lowest valid reading of all the sensors right now (0 if none of them has one)
+    private double lowestReading(){
+        double lowest = Double.POSITIVE_INFINITY;
+
+        for(int i = 0; i < sensors.length; i++){
+            double reading = sensors[i].getVoltage();
+            if(reading >= MIN_VALID_VOLTAGE && reading < lowest) lowest = reading;
+        }
+
+        return lowest == Double.POSITIVE_INFINITY ? 0 : lowest;
+    }
+
+    // Run the sampling loop on a different clock
+    public void setClock(RobotClock clock){
+        scheduler.setClock(clock);
+    }
+
+    // Read the battery once and update the scale
+    public void update(){
+        double reading = lowestReading();
+        if(reading < MIN_VALID_VOLTAGE) return;
+
+        double filtered;
+        if(!hasSample){
+            filter.reset(reading);
+            filtered = reading;
+            hasSample = true;
+        }else{
+            filtered = filter.filter(reading, scheduler.getDt());
+        }
+
+        voltage = filtered;
+        scale = Math.min(nominalVoltage/filtered, maxScale);
+    }
+
+    public void run(){
+        scheduler.start();
+
+        while(isRunning){
+            update();
+
+            try {
+                scheduler.sync();
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    // Multiply raw power by this to get the same effect as at the nominal voltage
+    public double getScale(){ return scale; }
+
+    // Filtered battery voltage
+    public double getVoltage(){ return voltage; }
+
+    public void stop(){ isRunning = false; }
+
+}
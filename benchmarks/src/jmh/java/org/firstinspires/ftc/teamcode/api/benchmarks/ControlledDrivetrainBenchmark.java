@@ -0,0 +1,74 @@
+/*
+ControlledDrivetrain Benchmarks
+Cost of one PID controller cycle (pose read, corrections, four motor writes)
+*/
+
+package org.firstinspires.ftc.teamcode.api.benchmarks;
+
+import org.firstinspires.ftc.teamcode.api.BulkReadCache;
+import org.firstinspires.ftc.teamcode.api.ControlledDrivetrain;
+import org.firstinspires.ftc.teamcode.api.DcMotorX;
+import org.firstinspires.ftc.teamcode.api.Odometry;
+import org.firstinspires.ftc.teamcode.api.sim.StubHub;
+import org.firstinspires.ftc.teamcode.api.sim.StubMotor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ControlledDrivetrainBenchmark {
+
+    private ControlledDrivetrain drivetrain;
+    private Odometry odometry;
+    private long time = 0;
+    private int tick = 0;
+
+    @Setup
+    public void setup(){
+        StubHub hub = new StubHub();
+        BulkReadCache cache = new BulkReadCache(hub, 0);
+
+        DcMotorX wheelR = new DcMotorX(new StubMotor("wheelR", 0), 8192, 15.71);
+        DcMotorX wheelL = new DcMotorX(new StubMotor("wheelL", 1), 8192, 15.71);
+        DcMotorX wheelB = new DcMotorX(new StubMotor("wheelB", 2), 8192, 15.71);
+        cache.attach(wheelR, wheelL, wheelB);
+
+        odometry = new Odometry(wheelR, wheelL, wheelB, 5, -41.577/(2*Math.PI), 40.8, 0, 0, 0);
+        odometry.startTracking(0, 0, 0, time);
+
+        drivetrain = new ControlledDrivetrain(
+                new DcMotorX(new StubMotor("mRF", 0)),
+                new DcMotorX(new StubMotor("mLF", 1)),
+                new DcMotorX(new StubMotor("mRB", 2)),
+                new DcMotorX(new StubMotor("mLB", 3)),
+                odometry
+        );
+        drivetrain.setPosition(100, 50, Math.PI/2);
+        drivetrain.setActive(true);
+    }
+
+    // Controller cycle against a pose that moves a little every call
+    @Benchmark
+    public void update(){
+        tick++;
+        time += 20000000L;
+        odometry.update(0.7*tick, 0.8*tick, 0.05*tick, time);
+
+        drivetrain.update();
+    }
+
+}
@@ -0,0 +1,58 @@
+/*
+Drivetrain Benchmarks
+Cost of mixing power/yaw/strafe into four wheel powers and writing them
+*/
+
+package org.firstinspires.ftc.teamcode.api.benchmarks;
+
+import org.firstinspires.ftc.teamcode.api.DcMotorX;
+import org.firstinspires.ftc.teamcode.api.Drivetrain;
+import org.firstinspires.ftc.teamcode.api.sim.StubMotor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DrivetrainBenchmark {
+
+    private Drivetrain drivetrain;
+    private int tick = 0;
+
+    @Setup
+    public void setup(){
+        drivetrain = new Drivetrain(
+                new DcMotorX(new StubMotor("mRF", 0)),
+                new DcMotorX(new StubMotor("mLF", 1)),
+                new DcMotorX(new StubMotor("mRB", 2)),
+                new DcMotorX(new StubMotor("mLB", 3))
+        );
+    }
+
+    // Joystick-style drive with inputs that change every call
+    @Benchmark
+    public void drive(){
+        tick++;
+        drivetrain.drive(0.001*(tick % 1000), -0.0005*(tick % 1000), 0.0002*(tick % 1000));
+    }
+
+    // Drive with the same inputs every call (like an idle loop)
+    @Benchmark
+    public void driveUnchanged(){
+        drivetrain.drive(0.5, 0.1, -0.2);
+    }
+
+}
@@ -0,0 +1,86 @@
+/*
+Odometry Benchmarks
+Cost of one odometry cycle (encoder reads through a bulk read cache + integration) and of the integration math alone
+*/
+
+package org.firstinspires.ftc.teamcode.api.benchmarks;
+
+import org.firstinspires.ftc.teamcode.api.BulkReadCache;
+import org.firstinspires.ftc.teamcode.api.DcMotorX;
+import org.firstinspires.ftc.teamcode.api.Odometry;
+import org.firstinspires.ftc.teamcode.api.sim.StubHub;
+import org.firstinspires.ftc.teamcode.api.sim.StubMotor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OdometryBenchmark {
+
+    @Param({"ARC", "POSE_EXPONENTIAL"})
+    public String integrator;
+
+    private StubHub hub;
+    private Odometry odometry;
+
+    // Simulated encoder travel per cycle (ticks) and time step (nanoseconds)
+    private int tick = 0;
+    private long time = 0;
+
+    @Setup
+    public void setup(){
+        hub = new StubHub();
+        BulkReadCache cache = new BulkReadCache(hub, 0);
+
+        DcMotorX wheelR = new DcMotorX(new StubMotor("wheelR", 0), 8192, 15.71);
+        DcMotorX wheelL = new DcMotorX(new StubMotor("wheelL", 1), 8192, 15.71);
+        DcMotorX wheelB = new DcMotorX(new StubMotor("wheelB", 2), 8192, 15.71);
+        cache.attach(wheelR, wheelL, wheelB);
+
+        odometry = new Odometry(wheelR, wheelL, wheelB, 5, -41.577/(2*Math.PI), 40.8, 0, 0, 0);
+        odometry.integrator = Odometry.Integrator.valueOf(integrator);
+        odometry.startTracking();
+    }
+
+    // Full cycle: bulk read, integrate, publish
+    @Benchmark
+    public void update(){
+        tick++;
+        hub.setPosition(0, 37*tick);
+        hub.setPosition(1, 41*tick);
+        hub.setPosition(2, 5*tick);
+
+        odometry.update();
+    }
+
+    // Integration and publishing only, from readings already in memory
+    @Benchmark
+    public void integrate(){
+        tick++;
+        time += 5000000L;
+
+        odometry.update(0.071*tick, 0.078*tick, 0.009*tick, time);
+    }
+
+    @Benchmark
+    public double arcdS(){
+        tick++;
+        return odometry.arcdS(0.071*tick, 0.078*tick, 1e-4*tick);
+    }
+
+}
@@ -0,0 +1,126 @@
+/*
+Auto-Tune Simulation
+Runs RelayAutoTuner against a simulated drivetrain axis and then compares a step move with the tuned and the default gains
+Runs on a regular JVM (gradle autoTuneSim in benchmarks/)
+The plant is one axis of the robot: motor power sets a target speed that the robot reaches with some lag, small powers
+don't overcome friction, and each command reaches the motors a couple of cycles late (like the real control loop)
+*/
+
+package org.firstinspires.ftc.teamcode.api.sim;
+
+import org.firstinspires.ftc.teamcode.api.RelayAutoTuner;
+
+public class AutoTuneSim {
+
+    // Control loop period (seconds)
+    private static final double DT = 0.02;
+    // Distance of the test step (cm)
+    private static final double STEP = 60;
+    // Length of the step test (seconds)
+    private static final double STEP_DURATION = 6;
+    // ControlledDrivetrain's default output/integral limits and anti-windup gain
+    private static final double OUTPUT_LIMIT = 1;
+    private static final double INTEGRAL_LIMIT = 0.3;
+    private static final double ANTI_WINDUP_GAIN = 5;
+
+    public static void main(String[] args){
+        Plant plant = new Plant();
+        RelayAutoTuner tuner = new RelayAutoTuner(0.3, 0.5, 4);
+
+        // Oscillate around 0 until the tuner has enough cycles (or give up after a minute)
+        long time = 0;
+        for(int i = 0; i < 60/DT && !tuner.isDone(); i++){
+            time += (long) (DT*1e9);
+            plant.step(tuner.update(-plant.position, time));
+        }
+
+        if(!tuner.isDone()){
+            System.out.println("Relay test didn't settle into an oscillation");
+            return;
+        }
+
+        System.out.printf("Ku = %.4f, Tu = %.3f s%n", tuner.getUltimateGain(), tuner.getUltimatePeriod());
+
+        System.out.println("gains                          Kp        Ki        Kd        overshoot   settling time");
+        printStep("default", new double[]{0.12, 0.001, 0.01209});
+
+        double[] gains = new double[3];
+        for(RelayAutoTuner.Rule rule : RelayAutoTuner.Rule.values()){
+            tuner.rule = rule;
+            tuner.getGains(gains);
+            printStep("tuned (" + rule + ")", gains);
+        }
+    }
+
+    private static void printStep(String name, double[] gains){
+        double[] result = step(gains);
+        String settling = result[1] < 0 ? "didn't settle" : String.format("%.2f s", result[1]);
+        System.out.printf("%-30s %-9.4f %-9.4f %-9.4f %-11s %s%n", name, gains[0], gains[1], gains[2],
+                String.format("%.1f%%", 100*result[0]), settling);
+    }
+
+    // Step from 0 to STEP with a PID loop like ControlledDrivetrain's (output limit, clamped integral with anti-windup)
+    // Returns {overshoot fraction, 2% settling time (-1 if never)}
+    public static double[] step(double[] gains){
+        Plant plant = new Plant();
+
+        double integral = 0;
+        double lastError = STEP;
+        double peak = 0;
+        double settled = -1;
+
+        for(int i = 0; i < STEP_DURATION/DT; i++){
+            double error = STEP - plant.position;
+            double unlimited = gains[0]*error + gains[1]*integral + gains[2]*(error - lastError)/DT;
+            double output = Math.max(-OUTPUT_LIMIT, Math.min(OUTPUT_LIMIT, unlimited));
+            plant.step(output);
+
+            if(gains[1] != 0){
+                double saturation = output - unlimited;
+                if(saturation == 0 || gains[1]*error*saturation > 0) integral += error*DT;
+                if(gains[1]*integral*saturation < 0) integral -= integral*Math.min(ANTI_WINDUP_GAIN*DT, 1);
+
+                double limit = INTEGRAL_LIMIT/Math.abs(gains[1]);
+                integral = Math.max(-limit, Math.min(limit, integral));
+            }
+            lastError = error;
+
+            peak = Math.max(peak, plant.position);
+            if(Math.abs(STEP - plant.position) > 0.02*STEP) settled = -1;
+            else if(settled < 0) settled = (i + 1)*DT;
+        }
+
+        return new double[]{Math.max(peak - STEP, 0)/STEP, settled};
+    }
+
+    // One axis of the drivetrain
+    public static class Plant {
+        // Speed at full power (cm/s) and how quickly the robot gets up to speed (seconds)
+        public double maxSpeed = 150;
+        public double timeConstant = 0.15;
+        // Power needed to get moving
+        public double staticPower = 0.05;
+        // Cycles between a command and the motors responding
+        public int delay = 2;
+
+        public double position = 0;
+        public double velocity = 0;
+        private final double[] pending = new double[8];
+        private int next = 0;
+
+        public void step(double power){
+            // Commands come out of a short delay line
+            int index = next % (delay + 1);
+            double applied = pending[index];
+            pending[index] = power;
+            next++;
+
+            if(Math.abs(applied) < staticPower) applied = 0;
+
+            double targetSpeed = maxSpeed*applied;
+            velocity += (targetSpeed - velocity)*DT/timeConstant;
+            position += velocity*DT;
+        }
+    }
+
+}
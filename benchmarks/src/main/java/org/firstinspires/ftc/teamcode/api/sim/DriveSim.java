@@ -0,0 +1,145 @@
+/*
+Headless Drive Simulation
+Drives the Ultimate Goal autonomous route on SimRobot for each target zone, then repeats it over a sweep of carpet
+friction values
+The route and robot setup are the Auton example's own (AutonRoute), so it's exactly what the robot drives: same odometry
+geometry, gains, bulk reads, profiled moves, mechanism moves, waits and fused control thread
+Runs on a regular JVM (gradle driveSim in benchmarks/), far faster than real time: every thread (controller, voltage
+compensator, physics and the route itself) runs on a VirtualClock, which skips ahead whenever they're all waiting
+For each move it reports how long the robot took to settle, how far it ended up from the target, and how far odometry
+has drifted from where the robot really is
+
+Command line: gradle driveSim [--args=<flight log file>] (records the first run with a FlightRecorder, see FlightLog)
+*/
+
+package org.firstinspires.ftc.teamcode.api.sim;
+
+import org.firstinspires.ftc.teamcode.api.FlightRecorder;
+import org.firstinspires.ftc.teamcode.api.Pose;
+import org.firstinspires.ftc.teamcode.api.RobotClock;
+import org.firstinspires.ftc.teamcode.api.VirtualClock;
+import org.firstinspires.ftc.teamcode.api.examples.ultimategoal.AutonRoute;
+
+import java.io.File;
+import java.io.IOException;
+
+public class DriveSim {
+
+    private static final char[] ZONES = {'a', 'b', 'c'};
+
+    public static void main(String[] args) throws InterruptedException, IOException {
+        FlightRecorder recorder = args.length > 0 ? new FlightRecorder(new File(args[0])) : null;
+
+        for(char zone : ZONES){
+            System.out.println("Target zone " + zone);
+            System.out.println("move  target             time      target error  odometry error");
+            Result result = run(new SimRobot(), zone, recorder, true);
+            System.out.printf("Route took %.1f s simulated in %.2f s (%.0fx real time)%n%n",
+                    result.simTime, result.wallTime, result.simTime/result.wallTime);
+
+            if(recorder != null){
+                System.out.printf("Recorded %d cycles to %s (%d dropped)%n%n", recorder.getRecords(), args[0], recorder.getDropped());
+                recorder = null;
+            }
+        }
+
+        System.out.println("friction  zone  route time  moves timed out  worst odometry error  real time");
+        double[] frictions = {0.5, 0.7, 0.9, 1.1};
+        for(double friction : frictions){
+            for(char zone : ZONES){
+                SimRobot robot = new SimRobot();
+                robot.chassis.friction = friction;
+
+                Result result = run(robot, zone, null, false);
+                System.out.printf("%-9.1f %-5s %-11s %-16d %-21s %.2f s%n", friction, zone, String.format("%.1f s", result.simTime),
+                        result.timeouts, String.format("%.2f cm", result.worstOdometryError), result.wallTime);
+            }
+        }
+    }
+
+    // Drive the route to a target zone, printing each move if verbose and logging every control cycle if given a recorder
+    public static Result run(final SimRobot robot, char zone, FlightRecorder recorder, final boolean verbose) throws InterruptedException, IOException {
+        long wallStart = System.nanoTime();
+
+        // Everything built from here on runs on simulated time, and this thread plays the part of the OpMode
+        VirtualClock clock = new VirtualClock();
+        RobotClock previousClock = RobotClock.getDefault();
+        RobotClock.setDefault(clock);
+        clock.register();
+
+        final Result result = new Result();
+        AutonRoute route = new AutonRoute(robot.hardwareMap){
+            // Where the robot stopped vs the target and vs where odometry thinks it is
+            @Override
+            protected void arrived(boolean arrived, long time){
+                if(!arrived) result.timeouts++;
+                result.moves++;
+
+                double[] truth = new double[3];
+                robot.getPose(truth);
+                Pose pose = drivetrain.positionTracker.getPose();
+                double targetError = Math.hypot(drivetrain.xT - truth[0], drivetrain.yT - truth[1]);
+                double odometryError = Math.hypot(pose.x - truth[0], pose.y - truth[1]);
+                result.worstOdometryError = Math.max(result.worstOdometryError, odometryError);
+
+                if(verbose){
+                    System.out.printf("%-5d %-18s %-9s %-13s %.2f cm, %.2f deg%n", result.moves,
+                            String.format("(%.1f, %.1f)", drivetrain.xT, drivetrain.yT),
+                            arrived ? String.format("%.2f s", time/1e9) : "timed out",
+                            String.format("%.2f cm", targetError), odometryError, Math.toDegrees(pose.phi - truth[2]));
+                }
+            }
+        };
+
+        robot.setClock(clock);
+        robot.setPose(route.x0, route.y0, route.phi0);
+        Thread physicsThread = clock.newThread(robot);
+        physicsThread.start();
+
+        Thread recorderThread = null;
+        if(recorder != null){
+            recorder.setClock(clock);
+            route.drivetrain.setFlightRecorder(recorder);
+            recorderThread = clock.newThread(recorder);
+            recorderThread.start();
+        }
+
+        long start = clock.nanoTime();
+
+        try {
+            route.start();
+            route.driveToStack();
+            route.run(zone);
+
+            result.simTime = (clock.nanoTime() - start)/1e9;
+        } finally {
+            route.shutdown();
+            robot.stop();
+            route.drivetrain.setFlightRecorder(null);
+            if(recorder != null) recorder.close();
+
+            // Let time run on without this thread so the others can finish
+            clock.unregister();
+            route.join();
+            physicsThread.join();
+            if(recorderThread != null) recorderThread.join();
+
+            RobotClock.setDefault(previousClock);
+        }
+
+        result.wallTime = (System.nanoTime() - wallStart)/1e9;
+        return result;
+    }
+
+    public static class Result {
+        // Simulated and real time the route took (seconds)
+        public double simTime;
+        public double wallTime;
+        // Moves the route waited on, and the ones where the robot never settled on the target
+        public int moves = 0;
+        public int timeouts = 0;
+        // Largest distance (cm) between odometry and the true position at the end of a move
+        public double worstOdometryError = 0;
+    }
+
+}
@@ -0,0 +1,119 @@
+/*
+Odometry Integrator Benchmark
+Drives a made-up trajectory through Odometry at several sample rates and compares each integrator against the ground truth
+Runs on a regular JVM (gradle integratorBenchmark in benchmarks/), the wheels are read through a StubHub
+*/
+
+package org.firstinspires.ftc.teamcode.api.sim;
+
+import org.firstinspires.ftc.teamcode.api.BulkReadCache;
+import org.firstinspires.ftc.teamcode.api.DcMotorX;
+import org.firstinspires.ftc.teamcode.api.Odometry;
+import org.firstinspires.ftc.teamcode.api.Pose;
+
+public class IntegratorBenchmark {
+
+    // Robot geometry (same units as the robot code)
+    private static final double WIDTH = 40.8;
+    private static final double BACK_DISTANCE_PER_RADIAN = -41.577/(2*Math.PI);
+    // Fine encoder resolution so quantization doesn't hide integration error
+    private static final int TICKS_PER_REV = 100000;
+    private static final double DISTANCE_PER_REV = 1;
+
+    // Length of the trajectory (seconds) and the step used to integrate the ground truth
+    private static final double DURATION = 15;
+    private static final double TRUTH_STEP = 1e-5;
+
+    private static final double[] RATES = new double[]{10, 20, 50, 100, 200, 500};
+
+    public static void main(String[] args){
+        for(boolean varying : new boolean[]{false, true}){
+            System.out.println(varying ? "Varying velocity trajectory" : "Constant velocity trajectory (strafing while turning)");
+            System.out.println("rate (Hz)   integrator         final error   max error");
+
+            for(double rate : RATES){
+                for(Odometry.Integrator integrator : Odometry.Integrator.values()){
+                    double[] error = run(rate, integrator, varying);
+                    System.out.printf("%-11.0f %-18s %-13.4f %.4f%n", rate, integrator, error[0], error[1]);
+                }
+            }
+
+            System.out.println();
+        }
+    }
+
+    // Robot-frame velocities at time t: {forward, sideways, turn rate}
+    private static void velocity(double t, boolean varying, double[] out){
+        if(varying){
+            out[0] = 90 * Math.sin(0.4*t) + 30;
+            out[1] = 45 * Math.cos(0.9*t);
+            out[2] = 2.5 * Math.sin(0.7*t) + 0.5*Math.cos(2.3*t);
+        }else{
+            out[0] = 40;
+            out[1] = 60;
+            out[2] = 2;
+        }
+    }
+
+    // Follow a trajectory at one sample rate, returns {final position error, max position error}
+    public static double[] run(double rate, Odometry.Integrator integrator, boolean varying){
+        StubHub hub = new StubHub();
+        BulkReadCache cache = new BulkReadCache(hub, 0);
+
+        DcMotorX wheelR = new DcMotorX(new StubMotor("wheelR", 0), TICKS_PER_REV, DISTANCE_PER_REV);
+        DcMotorX wheelL = new DcMotorX(new StubMotor("wheelL", 1), TICKS_PER_REV, DISTANCE_PER_REV);
+        DcMotorX wheelB = new DcMotorX(new StubMotor("wheelB", 2), TICKS_PER_REV, DISTANCE_PER_REV);
+        cache.attach(wheelR, wheelL, wheelB);
+
+        Odometry odometry = new Odometry(wheelR, wheelL, wheelB, 5, BACK_DISTANCE_PER_RADIAN, WIDTH, 0, 0, 0);
+        odometry.integrator = integrator;
+
+        // Ground truth pose and total (forward, sideways, rotation) travel
+        double x = 0, y = 0, phi = 0;
+        double S = 0, P = 0, theta = 0;
+
+        double[] v = new double[3];
+        double samplePeriod = 1/rate;
+        double nextSample = samplePeriod;
+        double maxError = 0;
+        double error = 0;
+
+        for(double t = 0; t < DURATION; t += TRUTH_STEP){
+            velocity(t + TRUTH_STEP/2, varying, v);
+
+            // Integrate the ground truth with tiny exact steps
+            double dS = v[0]*TRUTH_STEP, dP = v[1]*TRUTH_STEP, dphi = v[2]*TRUTH_STEP;
+            double dF = dS*Odometry.sinc(dphi) + dP*Odometry.versinc(dphi);
+            double dN = dP*Odometry.sinc(dphi) - dS*Odometry.versinc(dphi);
+            x += dF*Math.sin(phi) - dN*Math.cos(phi);
+            y += -dF*Math.cos(phi) - dN*Math.sin(phi);
+            phi += dphi;
+
+            S += dS;
+            P += dP;
+            theta += dphi;
+
+            if(t + TRUTH_STEP >= nextSample){
+                nextSample += samplePeriod;
+
+                // Encoder readings that produce this motion
+                hub.setPosition(0, toTicks(S - WIDTH/2*theta));
+                hub.setPosition(1, toTicks(S + WIDTH/2*theta));
+                hub.setPosition(2, toTicks(P + BACK_DISTANCE_PER_RADIAN*theta));
+
+                odometry.update();
+
+                Pose pose = odometry.getPose();
+                error = Math.hypot(pose.x - x, pose.y - y);
+                maxError = Math.max(maxError, error);
+            }
+        }
+
+        return new double[]{error, maxError};
+    }
+
+    private static int toTicks(double distance){
+        return (int) Math.round(distance * TICKS_PER_REV / DISTANCE_PER_REV);
+    }
+
+}
@@ -0,0 +1,173 @@
+/*
+Mecanum Chassis Simulation
+Rigid-body model of a mecanum robot driven by four SimMotors, with three dead-wheel encoders for odometry
+Each wheel pushes the robot with a traction force that grows with how fast the wheel slips over the carpet, up to the
+friction limit (so flooring the motors from a stop spins the wheels instead of launching the robot)
+The forces act through the mecanum kinematics (so strafing works), and roller losses make strafing slower than driving
+
+The pose is kept in the same frame as Odometry (cm, heading in radians counterclockwise, forward = (-sin(phi), cos(phi)))
+Wheel mounting and encoder polarity match the robot the examples were written for: the right motors are mirrored, so
+after Drivetrain's reversals positive power drives every wheel forward, and the dead wheels count the way Odometry expects
+*/
+
+package org.firstinspires.ftc.teamcode.api.sim;
+
+public class MecanumSim {
+
+    private static final double GRAVITY = 9.81;
+
+    // Wheel motors, in Drivetrain's order (right front, left front, right back, left back)
+    public final SimMotor[] wheels;
+    // Motors whose encoder ports the dead wheels are plugged into (right, left, back), null until set
+    private SimMotor deadWheelR, deadWheelL, deadWheelB;
+
+    // Robot mass (kg) and moment of inertia about its center (kg*m^2)
+    public double mass = 14;
+    public double momentOfInertia = 0.5;
+    // Mecanum wheel radius and the distances from the center to the wheels (m)
+    public double wheelRadius = 0.048;
+    public double halfLength = 0.16;
+    public double halfWidth = 0.18;
+    // Inertia of each wheel and its gearbox (kg*m^2)
+    public double wheelInertia = 0.002;
+    // Carpet friction coefficient, and the traction force per unit of slip speed (N per m/s) before it levels off
+    public double friction = 0.9;
+    public double slipStiffness = 300;
+    // Losses from the rollers, opposing forward, sideways (strafing is much lossier) and turning motion
+    public double forwardDamping = 5;
+    public double strafeDamping = 40;
+    public double turnDamping = 1;
+
+    // Dead wheel geometry (cm): distance of the right/left wheels from the center, and of the back wheel behind it
+    public double trackOffset = 20.4;
+    public double backOffset = 6.617;
+    // Dead wheel circumference (cm) and encoder resolution
+    public double deadWheelCircumference = 15.71;
+    public double deadWheelTicksPerRev = 8192;
+
+    // Pose in the field (cm, radians), true position regardless of what odometry thinks
+    private double x, y, phi;
+    // Velocity in the robot's frame (m/s forward, m/s left, rad/s counterclockwise)
+    private double vx, vy, w;
+    // Dead wheel travel in raw encoder ticks (right, left, back)
+    private double ticksR, ticksL, ticksB;
+    // and its rate (ticks/sec)
+    private double rateR, rateL, rateB;
+
+    // Which way each wheel's motor turns it (the right side is mirrored), and its kinematic row (forward, left, turn)
+    private static final double[] MOUNTING = {-1, 1, -1, 1};
+    private static final double[] STRAFE = {1, -1, -1, 1};
+    private static final double[] TURN = {1, -1, 1, -1};
+    // Traction force of each wheel in the last step (reused)
+    private final double[] forces = new double[4];
+
+    public MecanumSim(SimMotor mRF, SimMotor mLF, SimMotor mRB, SimMotor mLB){
+        this.wheels = new SimMotor[]{mRF, mLF, mRB, mLB};
+    }
+
+    // Plug dead wheel encoders into motor ports
+    public void setDeadWheels(SimMotor right, SimMotor left, SimMotor back){
+        deadWheelR = right;
+        deadWheelL = left;
+        deadWheelB = back;
+        updateEncoders();
+    }
+
+    // Place the robot (cm, radians), standing still
+    public void setPose(double x, double y, double phi){
+        this.x = x;
+        this.y = y;
+        this.phi = phi;
+        vx = 0;
+        vy = 0;
+        w = 0;
+    }
+
+    // Move the robot forward by dt seconds at a battery voltage (keep dt around a millisecond or less, the slip is stiff)
+    public void step(double dt, double voltage){
+        double turnRadius = halfLength + halfWidth;
+        double maxForce = friction*mass*GRAVITY/wheels.length;
+
+        double fx = 0, fy = 0, torque = 0;
+
+        for(int i = 0; i < wheels.length; i++){
+            SimMotor wheel = wheels[i];
+            wheel.inertia = wheelInertia;
+
+            // How fast the wheel's surface is moving vs how fast the chassis moves it over the carpet
+            double surfaceSpeed = MOUNTING[i]*wheel.getSpeed()*wheelRadius;
+            double groundSpeed = vx + STRAFE[i]*vy + TURN[i]*turnRadius*w;
+
+            // Traction saturates at the friction limit once the wheel really starts slipping
+            double force = maxForce*Math.tanh(slipStiffness*(surfaceSpeed - groundSpeed)/maxForce);
+            forces[i] = force;
+
+            fx += force;
+            fy += STRAFE[i]*force;
+            torque += TURN[i]*turnRadius*force;
+        }
+
+        // The carpet pushes back on each wheel as hard as the wheel pushes the robot
+        for(int i = 0; i < wheels.length; i++){
+            wheels[i].step(dt, voltage, -MOUNTING[i]*forces[i]*wheelRadius);
+        }
+
+        fx -= forwardDamping*vx;
+        fy -= strafeDamping*vy;
+        torque -= turnDamping*w;
+
+        // Newton's laws in the robot's (rotating) frame
+        double ax = fx/mass + w*vy;
+        double ay = fy/mass - w*vx;
+        vx += ax*dt;
+        vy += ay*dt;
+        w += torque/momentOfInertia*dt;
+
+        // Move the dead wheels with the chassis (forward travel of the side wheels, rightward travel of the back wheel)
+        double ticksPerMeter = 100*deadWheelTicksPerRev/deadWheelCircumference;
+        rateR = (vx + w*trackOffset/100)*ticksPerMeter;
+        rateL = -(vx - w*trackOffset/100)*ticksPerMeter;
+        rateB = -(vy - w*backOffset/100)*ticksPerMeter;
+        ticksR += rateR*dt;
+        ticksL += rateL*dt;
+        ticksB += rateB*dt;
+        updateEncoders();
+
+        // Move the robot in the field
+        double sin = Math.sin(phi);
+        double cos = Math.cos(phi);
+        x += 100*(-vx*sin - vy*cos)*dt;
+        y += 100*(vx*cos - vy*sin)*dt;
+        phi += w*dt;
+    }
+
+    private void updateEncoders(){
+        if(deadWheelR != null) deadWheelR.setExternalEncoder(ticksR, rateR);
+        if(deadWheelL != null) deadWheelL.setExternalEncoder(ticksL, rateL);
+        if(deadWheelB != null) deadWheelB.setExternalEncoder(ticksB, rateB);
+    }
+
+    public double getX(){ return x; }
+
+    public double getY(){ return y; }
+
+    // Heading without wrapping, like Odometry's
+    public double getPhi(){ return phi; }
+
+    // Get the velocity in the robot's frame {forward, left (cm/s), turn rate (rad/s)}
+    public void getRobotVelocity(double[] out){
+        out[0] = 100*vx;
+        out[1] = 100*vy;
+        out[2] = w;
+    }
+
+    // Traction force (N) each wheel put down in the last step, in wheel order
+    public double getWheelForce(int wheel){ return forces[wheel]; }
+
+    // How much each wheel is slipping (m/s), in wheel order
+    public double getWheelSlip(int wheel){
+        double surfaceSpeed = MOUNTING[wheel]*wheels[wheel].getSpeed()*wheelRadius;
+        return surfaceSpeed - (vx + STRAFE[wheel]*vy + TURN[wheel]*(halfLength + halfWidth)*w);
+    }
+
+}
@@ -0,0 +1,69 @@
+/*
+Simulated Hub
+REV hub whose bulk reads come straight from the SimMotors plugged into it, so BulkReadCache(LynxModule) works in the
+simulator the same way it does on the robot (SimRobot registers one as "Control Hub" and one as "Expansion Hub 2")
+Like a real hub's, the bulk data isn't adjusted for motor direction
+*/
+
+package org.firstinspires.ftc.teamcode.api.sim;
+
+import com.qualcomm.hardware.lynx.LynxModule;
+
+import org.firstinspires.ftc.teamcode.api.BulkReadCache;
+
+public class SimHub extends LynxModule {
+
+    private String name;
+    // Motor plugged into each port (null if the port is empty)
+    private final SimMotor[] motors = new SimMotor[BulkReadCache.PORTS];
+
+    private BulkCachingMode cachingMode = BulkCachingMode.OFF;
+    // Number of bulk reads made so far
+    private long reads = 0;
+
+    // Hub with motors plugged into the ports they report from getPortNumber()
+    public SimHub(String name, SimMotor... motors){
+        this.name = name;
+        for(SimMotor motor : motors) this.motors[motor.getPortNumber()] = motor;
+    }
+
+    public synchronized BulkData getBulkData(){
+        int[] positions = new int[BulkReadCache.PORTS];
+        int[] velocities = new int[BulkReadCache.PORTS];
+        boolean[] busy = new boolean[BulkReadCache.PORTS];
+
+        for(int port = 0; port < BulkReadCache.PORTS; port++){
+            SimMotor motor = motors[port];
+            if(motor == null) continue;
+
+            positions[port] = motor.getRawPosition();
+            velocities[port] = (int) Math.round(motor.getRawVelocity());
+            busy[port] = motor.isBusy();
+        }
+
+        reads++;
+        return new BulkData(positions, velocities, busy);
+    }
+
+    public synchronized long getReads(){ return reads; }
+
+    public synchronized void setBulkCachingMode(BulkCachingMode mode){ cachingMode = mode; }
+
+    public synchronized BulkCachingMode getBulkCachingMode(){ return cachingMode; }
+
+    // Nothing is cached here, every bulk read is fresh
+    public void clearBulkCache(){ }
+
+    public Manufacturer getManufacturer(){ return Manufacturer.Lynx; }
+
+    public String getDeviceName(){ return name; }
+
+    public String getConnectionInfo(){ return "sim hub"; }
+
+    public int getVersion(){ return 1; }
+
+    public void resetDeviceConfigurationForOpMode(){ }
+
+    public void close(){ }
+
+}
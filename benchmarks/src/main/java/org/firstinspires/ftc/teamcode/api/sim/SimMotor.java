@@ -0,0 +1,258 @@
+/*
+Simulated Motor
+DcMotor backed by a brushed DC motor model, so DcMotorX/Drivetrain code (and the OpModes built on it) can run on a regular JVM
+Torque falls off linearly from stall to free speed and scales with battery voltage, and the hub's run modes are imitated:
+raw power, velocity control (RUN_USING_ENCODER) and position control (RUN_TO_POSITION)
+The shaft turns a load inertia against friction (and optional hard stops), MecanumSim adds the wheel/ground forces for drive motors
+*/
+
+package org.firstinspires.ftc.teamcode.api.sim;
+
+import com.qualcomm.robotcore.hardware.DcMotor;
+import com.qualcomm.robotcore.hardware.DcMotorController;
+import com.qualcomm.robotcore.hardware.configuration.typecontainers.MotorConfigurationType;
+
+public class SimMotor implements DcMotor {
+
+    // Voltage the motor models are rated at
+    public static final double NOMINAL_VOLTAGE = 12.0;
+
+    // Common FTC motors (speeds/torques at the output shaft)
+    public static final Model GOBILDA_312 = new Model(312*2*Math.PI/60, 2.45, 9.2, 537.7);
+    public static final Model GOBILDA_6000 = new Model(6000*2*Math.PI/60, 0.145, 9.2, 28);
+    public static final Model CORE_HEX = new Model(125*2*Math.PI/60, 3.2, 4.4, 288);
+
+    // Fraction of free speed that full power asks for in RUN_USING_ENCODER (the hub leaves some headroom to regulate with)
+    public static final double VELOCITY_FRACTION = 0.85;
+    // Hub's velocity loop (power per fraction of free speed off target) and position loop (rad/s per radian off target)
+    public static final double VELOCITY_GAIN = 5;
+    public static final double POSITION_GAIN = 10;
+    // isBusy() turns false within this many ticks of the target
+    public static final int TARGET_TOLERANCE = 5;
+    // Speed (rad/s) over which friction builds up to its full value (keeps it from chattering around 0)
+    private static final double FRICTION_SMOOTHING = 0.5;
+
+    private String name;
+    private int port;
+    public final Model model;
+
+    // Inertia turned by the shaft (kg*m^2, including the gearbox) and friction torque against it (N*m)
+    public double inertia = 0.001;
+    public double frictionTorque = 0.02;
+    // Shaft angles (radians, raw direction) the mechanism can't go past
+    public double lowerStop = Double.NEGATIVE_INFINITY;
+    public double upperStop = Double.POSITIVE_INFINITY;
+
+    private double power = 0;
+    private Direction direction = Direction.FORWARD;
+    private RunMode mode = RunMode.RUN_WITHOUT_ENCODER;
+    private ZeroPowerBehavior zeroPowerBehavior = ZeroPowerBehavior.FLOAT;
+    private MotorConfigurationType motorType = null;
+    private int targetPosition = 0;
+
+    // Shaft state (raw direction, radians and rad/s)
+    private double angle = 0;
+    private double speed = 0;
+    // Current drawn from the battery in the last step (A)
+    private double current = 0;
+
+    // Encoder reading in raw ticks comes from the shaft unless something else is plugged into the port (e.g. a dead wheel)
+    private boolean externalEncoder = false;
+    private double externalTicks = 0;
+    private double externalVelocity = 0;
+    // Reading that counts as 0 (moved by STOP_AND_RESET_ENCODER)
+    private double encoderZero = 0;
+
+    // Number of setPower() calls made so far
+    private long powerWrites = 0;
+
+    public SimMotor(String name, int port, Model model){
+        this.name = name;
+        this.port = port;
+        this.model = model;
+    }
+
+    // Move the shaft forward by dt seconds at a battery voltage, with an extra torque from whatever it's driving
+    public synchronized void step(double dt, double voltage, double loadTorque){
+        double torque = motorTorque(voltage) + loadTorque - frictionTorque*Math.tanh(speed/FRICTION_SMOOTHING);
+
+        speed += torque/inertia*dt;
+        angle += speed*dt;
+
+        // Mechanism hits a hard stop
+        if(angle < lowerStop){
+            angle = lowerStop;
+            speed = Math.max(speed, 0);
+        }else if(angle > upperStop){
+            angle = upperStop;
+            speed = Math.min(speed, 0);
+        }
+    }
+
+    // Torque the motor is putting out at the current speed (and the battery current it draws)
+    private double motorTorque(double voltage){
+        double dutyCycle = dutyCycle();
+
+        // Floating with no power: the leads are open, so there's no back-EMF braking either
+        if(dutyCycle == 0 && zeroPowerBehavior == ZeroPowerBehavior.FLOAT){
+            current = 0;
+            return 0;
+        }
+
+        // Fraction of stall the motor is at (negative while it's being back-driven or braking)
+        double load = dutyCycle*voltage/NOMINAL_VOLTAGE - speed/model.freeSpeed;
+        current = dutyCycle*load*model.stallCurrent;
+
+        return load*model.stallTorque;
+    }
+
+    // Raw-direction duty cycle (-1 to 1) the hub drives the motor with in the current mode
+    private double dutyCycle(){
+        double sign = direction == Direction.REVERSE ? -1 : 1;
+        double maxSpeed = VELOCITY_FRACTION*model.freeSpeed;
+
+        switch(mode){
+            case RUN_WITHOUT_ENCODER:
+                return sign*clamp(power, 1);
+            case RUN_USING_ENCODER:
+                return sign*velocityControl(clamp(power, 1)*maxSpeed);
+            case RUN_TO_POSITION:
+                // Drive towards the target no faster than the power allows
+                double error = (targetPosition - getCurrentPosition())*2*Math.PI/model.ticksPerRev;
+                return sign*velocityControl(clamp(POSITION_GAIN*error, Math.abs(clamp(power, 1))*maxSpeed));
+            default:
+                return 0;
+        }
+    }
+
+    // Duty cycle that holds a target speed (in the motor's own direction), feedforward plus a proportional correction
+    private double velocityControl(double targetSpeed){
+        double measured = direction == Direction.REVERSE ? -speed : speed;
+        return clamp((targetSpeed + VELOCITY_GAIN*(targetSpeed - measured))/model.freeSpeed, 1);
+    }
+
+    private static double clamp(double value, double limit){
+        return Math.max(-limit, Math.min(limit, value));
+    }
+
+    // Make the encoder read an external source, in raw ticks and ticks/sec (e.g. a dead wheel plugged into this motor's port)
+    public synchronized void setExternalEncoder(double ticks, double ticksPerSecond){
+        externalEncoder = true;
+        externalTicks = ticks;
+        externalVelocity = ticksPerSecond;
+    }
+
+    private double rawTicks(){
+        return externalEncoder ? externalTicks : angle*model.ticksPerRev/(2*Math.PI);
+    }
+
+    // Encoder position and velocity (ticks, ticks/sec) the way a hub's bulk read reports them, not adjusted for direction
+    public synchronized int getRawPosition(){
+        return (int) Math.round(rawTicks() - encoderZero);
+    }
+
+    public synchronized double getRawVelocity(){
+        return externalEncoder ? externalVelocity : speed*model.ticksPerRev/(2*Math.PI);
+    }
+
+    // Put the shaft at an angle (radians, raw direction), e.g. to start a mechanism somewhere other than 0
+    public synchronized void setAngle(double angle){ this.angle = angle; }
+
+    // Shaft angle (radians) and speed (rad/s) in the raw direction
+    public synchronized double getAngle(){ return angle; }
+
+    public synchronized double getSpeed(){ return speed; }
+
+    // Battery current drawn in the last step (A, negative while regenerating)
+    public synchronized double getCurrent(){ return current; }
+
+    public synchronized long getPowerWrites(){ return powerWrites; }
+
+    public synchronized void setPower(double power){
+        this.power = power;
+        powerWrites++;
+    }
+
+    public synchronized double getPower(){ return power; }
+
+    public synchronized void setDirection(Direction direction){ this.direction = direction; }
+
+    public synchronized Direction getDirection(){ return direction; }
+
+    public synchronized int getCurrentPosition(){
+        int position = getRawPosition();
+        return direction == Direction.REVERSE ? -position : position;
+    }
+
+    public synchronized void setMode(RunMode mode){
+        if(mode == RunMode.STOP_AND_RESET_ENCODER) encoderZero = rawTicks();
+        this.mode = mode;
+    }
+
+    public synchronized RunMode getMode(){ return mode; }
+
+    public synchronized void setTargetPosition(int targetPosition){ this.targetPosition = targetPosition; }
+
+    public synchronized int getTargetPosition(){ return targetPosition; }
+
+    public synchronized boolean isBusy(){
+        return mode == RunMode.RUN_TO_POSITION && Math.abs(targetPosition - getCurrentPosition()) > TARGET_TOLERANCE;
+    }
+
+    public synchronized void setZeroPowerBehavior(ZeroPowerBehavior zeroPowerBehavior){ this.zeroPowerBehavior = zeroPowerBehavior; }
+
+    public synchronized ZeroPowerBehavior getZeroPowerBehavior(){ return zeroPowerBehavior; }
+
+    @Deprecated
+    public synchronized void setPowerFloat(){
+        zeroPowerBehavior = ZeroPowerBehavior.FLOAT;
+        setPower(0);
+    }
+
+    public synchronized boolean getPowerFloat(){
+        return zeroPowerBehavior == ZeroPowerBehavior.FLOAT && power == 0;
+    }
+
+    public MotorConfigurationType getMotorType(){ return motorType; }
+
+    public void setMotorType(MotorConfigurationType motorType){ this.motorType = motorType; }
+
+    public DcMotorController getController(){ return null; }
+
+    public int getPortNumber(){ return port; }
+
+    public Manufacturer getManufacturer(){ return Manufacturer.Other; }
+
+    public String getDeviceName(){ return name; }
+
+    public String getConnectionInfo(){ return "sim port " + port; }
+
+    public int getVersion(){ return 1; }
+
+    public void resetDeviceConfigurationForOpMode(){ }
+
+    public void close(){ }
+
+    // Motor characteristics at NOMINAL_VOLTAGE
+    public static class Model {
+        // Free speed (rad/s), stall torque (N*m) and stall current (A) at the output shaft
+        public final double freeSpeed;
+        public final double stallTorque;
+        public final double stallCurrent;
+        // Encoder ticks per output revolution
+        public final double ticksPerRev;
+
+        public Model(double freeSpeed, double stallTorque, double stallCurrent, double ticksPerRev){
+            this.freeSpeed = freeSpeed;
+            this.stallTorque = stallTorque;
+            this.stallCurrent = stallCurrent;
+            this.ticksPerRev = ticksPerRev;
+        }
+
+        // Same motor with an extra gear reduction on the output
+        public Model geared(double ratio){
+            return new Model(freeSpeed/ratio, stallTorque*ratio, stallCurrent, ticksPerRev*ratio);
+        }
+    }
+
+}
@@ -0,0 +1,170 @@
+/*
+Simulated Robot
+The Ultimate Goal robot from the examples as simulated hardware: a HardwareMap with the same device names as the real
+configuration, a mecanum chassis with dead wheels, the wobble arm (with its limit switch), launcher, intake, servos, the two
+hubs (for bulk reads) and a battery that sags under load
+Either step it by hand with advance(), or run it on its own thread, where it keeps up with its RobotClock so regular
+threaded OpMode code can drive it: in real time on the wall clock, or as fast as the CPU allows on a VirtualClock (see DriveSim)
+*/
+
+package org.firstinspires.ftc.teamcode.api.sim;
+
+import com.qualcomm.robotcore.hardware.HardwareMap;
+
+import org.firstinspires.ftc.teamcode.api.RobotClock;
+
+public class SimRobot implements Runnable {
+
+    // Physics time step (seconds), the wheel slip needs steps this small to stay stable
+    public static final double SUBSTEP = 0.0005;
+    // How often the background thread catches the physics up with the clock (nanoseconds)
+    public static final long RUN_PERIOD = 1000000L;
+
+    public final HardwareMap hardwareMap = new HardwareMap(null);
+
+    public final SimMotor mRF, mLF, mRB, mLB;
+    public final SimMotor arm, launcher, intake, intakeWheels;
+    public final SimServo flipper, claw;
+    public final SimTouchSensor armLimit;
+    public final SimVoltageSensor voltageSensor;
+    public final SimHub controlHub, expansionHub;
+    public final MecanumSim chassis;
+    // Motors that just turn their own mechanism (not the chassis)
+    private final SimMotor[] mechanisms;
+
+    // Battery open-circuit voltage and internal resistance (ohms, including wiring)
+    public double batteryVoltage = 12.8;
+    public double batteryResistance = 0.025;
+    // Voltage at the hub in the last step
+    private double voltage;
+
+    // Simulated time (nanoseconds since the simulation started)
+    private long time = 0;
+    // Leftover time shorter than a substep, carried over to the next advance()
+    private double remainder = 0;
+
+    // Run/Stop the background thread, and how many times faster than the clock it runs
+    private volatile boolean isRunning = true;
+    public volatile double speed = 1;
+    private RobotClock clock = RobotClock.getDefault();
+
+    public SimRobot(){
+        mRF = new SimMotor("mRF", 0, SimMotor.GOBILDA_312);
+        mLF = new SimMotor("mLF", 1, SimMotor.GOBILDA_312);
+        mRB = new SimMotor("mRB", 2, SimMotor.GOBILDA_312);
+        mLB = new SimMotor("mLB", 3, SimMotor.GOBILDA_312);
+
+        // The dead wheels are plugged into the drive motors' encoder ports (as in the Auton example)
+        chassis = new MecanumSim(mRF, mLF, mRB, mLB);
+        chassis.setDeadWheels(mRB, mLF, mRF);
+
+        // Wobble arm: 3:1 on a core hex, resting a little below the limit switch, which is just short of a hard stop
+        arm = new SimMotor("arm", 0, SimMotor.CORE_HEX.geared(3));
+        arm.inertia = 0.02;
+        arm.frictionTorque = 0.3;
+        arm.upperStop = Math.toRadians(10);
+        armLimit = new SimTouchSensor("armLimit", arm, Math.toRadians(5), Double.POSITIVE_INFINITY);
+
+        // Launcher flywheel
+        launcher = new SimMotor("launcher", 1, SimMotor.GOBILDA_6000);
+        launcher.inertia = 0.0005;
+        launcher.frictionTorque = 0.005;
+
+        intake = new SimMotor("intake", 2, SimMotor.GOBILDA_312);
+        intakeWheels = new SimMotor("intakeWheels", 3, SimMotor.GOBILDA_312);
+
+        flipper = new SimServo("flipper", 0);
+        claw = new SimServo("claw", 1, 0);
+
+        voltage = batteryVoltage;
+        voltageSensor = new SimVoltageSensor("Control Hub", voltage);
+
+        // Drive motors (and so the dead wheels) on the Control Hub, the mechanisms on the Expansion Hub
+        controlHub = new SimHub("Control Hub", mRF, mLF, mRB, mLB);
+        expansionHub = new SimHub("Expansion Hub 2", arm, launcher, intake, intakeWheels);
+
+        mechanisms = new SimMotor[]{arm, launcher, intake, intakeWheels};
+        for(SimMotor motor : chassis.wheels) hardwareMap.dcMotor.put(motor.getDeviceName(), motor);
+        for(SimMotor motor : mechanisms) hardwareMap.dcMotor.put(motor.getDeviceName(), motor);
+        hardwareMap.servo.put(flipper.getDeviceName(), flipper);
+        hardwareMap.servo.put(claw.getDeviceName(), claw);
+        hardwareMap.touchSensor.put(armLimit.getDeviceName(), armLimit);
+        hardwareMap.voltageSensor.put(voltageSensor.getDeviceName(), voltageSensor);
+        hardwareMap.put(controlHub.getDeviceName(), controlHub);
+        hardwareMap.put(expansionHub.getDeviceName(), expansionHub);
+    }
+
+    // Run the simulation forward by some number of seconds (in SUBSTEP steps)
+    public synchronized void advance(double seconds){
+        remainder += seconds;
+
+        while(remainder >= SUBSTEP){
+            step(SUBSTEP);
+            remainder -= SUBSTEP;
+        }
+    }
+
+    // One physics step
+    private void step(double dt){
+        double current = 0;
+
+        chassis.step(dt, voltage);
+        for(SimMotor wheel : chassis.wheels) current += wheel.getCurrent();
+
+        for(SimMotor motor : mechanisms){
+            motor.step(dt, voltage, 0);
+            current += motor.getCurrent();
+        }
+
+        flipper.step(dt);
+        claw.step(dt);
+
+        // Battery sags with the current drawn (and rises a little while motors regenerate)
+        voltage = batteryVoltage - batteryResistance*current;
+        voltageSensor.voltage = voltage;
+
+        time += (long) (dt*1e9);
+    }
+
+    // Simulated time in nanoseconds (use in place of System.nanoTime() timestamps)
+    public synchronized long getTime(){ return time; }
+
+    // Place the robot in the field (cm, radians, same frame as Odometry)
+    public synchronized void setPose(double x, double y, double phi){
+        chassis.setPose(x, y, phi);
+    }
+
+    // Where the robot really is {x, y, phi}
+    public synchronized void getPose(double[] out){
+        out[0] = chassis.getX();
+        out[1] = chassis.getY();
+        out[2] = chassis.getPhi();
+    }
+
+    // Battery voltage at the hub in the last step
+    public synchronized double getVoltage(){ return voltage; }
+
+    // Keep the background thread in step with a different clock
+    public void setClock(RobotClock clock){ this.clock = clock; }
+
+    // Keep the simulation in step with the clock (times speed) until stop() is called
+    public void run(){
+        long last = clock.nanoTime();
+
+        while(isRunning){
+            try {
+                clock.sleepNanos(RUN_PERIOD);
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+                return;
+            }
+
+            long now = clock.nanoTime();
+            advance(speed*(now - last)/1e9);
+            last = now;
+        }
+    }
+
+    public void stop(){ isRunning = false; }
+
+}
@@ -0,0 +1,97 @@
+/*
+Simulated Servo
+Servo that moves towards its commanded position at a limited speed, like a real servo does
+getPosition() returns the last command (as the SDK does), getActualPosition() is where the horn really is
+*/
+
+package org.firstinspires.ftc.teamcode.api.sim;
+
+import com.qualcomm.robotcore.hardware.Servo;
+import com.qualcomm.robotcore.hardware.ServoController;
+
+public class SimServo implements Servo {
+
+    private String name;
+    private int port;
+
+    // Time to sweep the whole range (a typical servo does 60 degrees in about 0.1 s)
+    public double secondsPerRange = 0.3;
+
+    private Direction direction = Direction.FORWARD;
+    // Commanded position (0-1, before direction/scaling) and the range it's scaled into
+    private double position = Double.NaN;
+    private double min = MIN_POSITION;
+    private double max = MAX_POSITION;
+    // Where the servo actually is (0-1 of its full range)
+    private double actualPosition;
+
+    public SimServo(String name, int port){
+        this(name, port, 0.5);
+    }
+
+    // Servo starting at an actual position (before it's given any command it doesn't hold or move)
+    public SimServo(String name, int port, double actualPosition){
+        this.name = name;
+        this.port = port;
+        this.actualPosition = actualPosition;
+    }
+
+    // Move towards the commanded position for dt seconds
+    public synchronized void step(double dt){
+        // No PWM signal until the first command
+        if(Double.isNaN(position)) return;
+
+        double target = getTargetPosition();
+        double maxStep = dt/secondsPerRange;
+        actualPosition += Math.max(-maxStep, Math.min(maxStep, target - actualPosition));
+    }
+
+    // Position the servo is moving to (0-1 of its full range)
+    public synchronized double getTargetPosition(){
+        double target = direction == Direction.REVERSE ? MAX_POSITION - position : position;
+        return min + target*(max - min);
+    }
+
+    public synchronized double getActualPosition(){ return actualPosition; }
+
+    // Whether the servo has reached its commanded position
+    public synchronized boolean isSettled(){
+        return Double.isNaN(position) || actualPosition == getTargetPosition();
+    }
+
+    public ServoController getController(){ return null; }
+
+    public int getPortNumber(){ return port; }
+
+    public synchronized void setDirection(Direction direction){ this.direction = direction; }
+
+    public synchronized Direction getDirection(){ return direction; }
+
+    public synchronized void setPosition(double position){
+        this.position = Math.max(MIN_POSITION, Math.min(MAX_POSITION, position));
+    }
+
+    public synchronized double getPosition(){ return position; }
+
+    public synchronized void scaleRange(double min, double max){
+        if(min < MIN_POSITION || max > MAX_POSITION || min >= max){
+            throw new IllegalArgumentException("Servo range must be within [0, 1] with min < max");
+        }
+
+        this.min = min;
+        this.max = max;
+    }
+
+    public Manufacturer getManufacturer(){ return Manufacturer.Other; }
+
+    public String getDeviceName(){ return name; }
+
+    public String getConnectionInfo(){ return "sim servo port " + port; }
+
+    public int getVersion(){ return 1; }
+
+    public void resetDeviceConfigurationForOpMode(){ }
+
+    public void close(){ }
+
+}
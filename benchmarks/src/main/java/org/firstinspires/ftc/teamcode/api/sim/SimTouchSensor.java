@@ -0,0 +1,54 @@
+/*
+Simulated Touch Sensor
+Either pressed/released by hand, or a limit switch that is pressed while a SimMotor's shaft is within a range of angles
+*/
+
+package org.firstinspires.ftc.teamcode.api.sim;
+
+import com.qualcomm.robotcore.hardware.TouchSensor;
+
+public class SimTouchSensor implements TouchSensor {
+
+    private String name;
+
+    // State when set by hand
+    public volatile boolean pressed = false;
+
+    // Motor whose shaft presses the switch (null when set by hand), and the angles it's pressed between (raw radians)
+    private SimMotor motor = null;
+    private double pressedFrom, pressedTo;
+
+    public SimTouchSensor(String name){
+        this.name = name;
+    }
+
+    // Limit switch pressed while a motor's shaft is between two angles
+    public SimTouchSensor(String name, SimMotor motor, double pressedFrom, double pressedTo){
+        this.name = name;
+        this.motor = motor;
+        this.pressedFrom = pressedFrom;
+        this.pressedTo = pressedTo;
+    }
+
+    public double getValue(){ return isPressed() ? 1 : 0; }
+
+    public boolean isPressed(){
+        if(motor == null) return pressed;
+
+        double angle = motor.getAngle();
+        return angle >= pressedFrom && angle <= pressedTo;
+    }
+
+    public Manufacturer getManufacturer(){ return Manufacturer.Other; }
+
+    public String getDeviceName(){ return name; }
+
+    public String getConnectionInfo(){ return "sim digital port"; }
+
+    public int getVersion(){ return 1; }
+
+    public void resetDeviceConfigurationForOpMode(){ }
+
+    public void close(){ }
+
+}
@@ -0,0 +1,35 @@
+/*
+Simulated Voltage Sensor
+Reports the simulated battery voltage (SimRobot updates it every step, including sag under load)
+*/
+
+package org.firstinspires.ftc.teamcode.api.sim;
+
+import com.qualcomm.robotcore.hardware.VoltageSensor;
+
+public class SimVoltageSensor implements VoltageSensor {
+
+    private String name;
+
+    public volatile double voltage;
+
+    public SimVoltageSensor(String name, double voltage){
+        this.name = name;
+        this.voltage = voltage;
+    }
+
+    public double getVoltage(){ return voltage; }
+
+    public Manufacturer getManufacturer(){ return Manufacturer.Other; }
+
+    public String getDeviceName(){ return name; }
+
+    public String getConnectionInfo(){ return "sim hub"; }
+
+    public int getVersion(){ return 1; }
+
+    public void resetDeviceConfigurationForOpMode(){ }
+
+    public void close(){ }
+
+}
@@ -0,0 +1,37 @@
+/*
+Stub Hub
+Stand-in for a REV hub that serves bulk reads from plain arrays, so code using BulkReadCache can run on a regular JVM
+Set encoder values with the setters and check getReads() to see how many transactions were made
+*/
+
+package org.firstinspires.ftc.teamcode.api.sim;
+
+import org.firstinspires.ftc.teamcode.api.BulkReadCache;
+
+public class StubHub implements BulkReadCache.Hub {
+
+    // Values returned by the next read (positions/velocities are in encoder ticks)
+    public final int[] positions = new int[BulkReadCache.PORTS];
+    public final double[] velocities = new double[BulkReadCache.PORTS];
+    public final boolean[] busy = new boolean[BulkReadCache.PORTS];
+
+    // Number of bulk reads made so far
+    private long reads = 0;
+
+    public synchronized void read(int[] positions, double[] velocities, boolean[] busy){
+        System.arraycopy(this.positions, 0, positions, 0, positions.length);
+        System.arraycopy(this.velocities, 0, velocities, 0, velocities.length);
+        System.arraycopy(this.busy, 0, busy, 0, busy.length);
+
+        reads++;
+    }
+
+    public synchronized void setPosition(int port, int position){ positions[port] = position; }
+
+    public synchronized void setVelocity(int port, double velocity){ velocities[port] = velocity; }
+
+    public synchronized void setBusy(int port, boolean isBusy){ busy[port] = isBusy; }
+
+    public synchronized long getReads(){ return reads; }
+
+}
@@ -0,0 +1,107 @@
+/*
+Stub Motor
+DcMotor that just remembers what it was told, so DcMotorX/Drivetrain code can run on a regular JVM
+The encoder position can be set directly, and every setPower() call is counted
+*/
+
+package org.firstinspires.ftc.teamcode.api.sim;
+
+import com.qualcomm.robotcore.hardware.DcMotor;
+import com.qualcomm.robotcore.hardware.DcMotorController;
+import com.qualcomm.robotcore.hardware.configuration.typecontainers.MotorConfigurationType;
+
+public class StubMotor implements DcMotor {
+
+    private String name;
+    private int port;
+
+    private double power = 0;
+    private Direction direction = Direction.FORWARD;
+    private RunMode mode = RunMode.RUN_WITHOUT_ENCODER;
+    private ZeroPowerBehavior zeroPowerBehavior = ZeroPowerBehavior.FLOAT;
+    private MotorConfigurationType motorType = null;
+    private int targetPosition = 0;
+    private int currentPosition = 0;
+
+    // Number of setPower() calls made so far
+    private long powerWrites = 0;
+
+    public StubMotor(){
+        this("stub", 0);
+    }
+
+    public StubMotor(String name, int port){
+        this.name = name;
+        this.port = port;
+    }
+
+    // Set the encoder reading (in ticks, before direction is applied)
+    public void setCurrentPosition(int currentPosition){ this.currentPosition = currentPosition; }
+
+    public long getPowerWrites(){ return powerWrites; }
+
+    public void setPower(double power){
+        this.power = power;
+        powerWrites++;
+    }
+
+    public double getPower(){ return power; }
+
+    public void setDirection(Direction direction){ this.direction = direction; }
+
+    public Direction getDirection(){ return direction; }
+
+    public int getCurrentPosition(){
+        return direction == Direction.REVERSE ? -currentPosition : currentPosition;
+    }
+
+    public void setMode(RunMode mode){
+        if(mode == RunMode.STOP_AND_RESET_ENCODER) currentPosition = 0;
+        this.mode = mode;
+    }
+
+    public RunMode getMode(){ return mode; }
+
+    public void setTargetPosition(int targetPosition){ this.targetPosition = targetPosition; }
+
+    public int getTargetPosition(){ return targetPosition; }
+
+    public boolean isBusy(){
+        return mode == RunMode.RUN_TO_POSITION && getCurrentPosition() != targetPosition;
+    }
+
+    public void setZeroPowerBehavior(ZeroPowerBehavior zeroPowerBehavior){ this.zeroPowerBehavior = zeroPowerBehavior; }
+
+    public ZeroPowerBehavior getZeroPowerBehavior(){ return zeroPowerBehavior; }
+
+    @Deprecated
+    public void setPowerFloat(){
+        zeroPowerBehavior = ZeroPowerBehavior.FLOAT;
+        setPower(0);
+    }
+
+    public boolean getPowerFloat(){
+        return zeroPowerBehavior == ZeroPowerBehavior.FLOAT && power == 0;
+    }
+
+    public MotorConfigurationType getMotorType(){ return motorType; }
+
+    public void setMotorType(MotorConfigurationType motorType){ this.motorType = motorType; }
+
+    public DcMotorController getController(){ return null; }
+
+    public int getPortNumber(){ return port; }
+
+    public Manufacturer getManufacturer(){ return Manufacturer.Other; }
+
+    public String getDeviceName(){ return name; }
+
+    public String getConnectionInfo(){ return "stub port " + port; }
+
+    public int getVersion(){ return 1; }
+
+    public void resetDeviceConfigurationForOpMode(){ }
+
+    public void close(){ }
+
+}
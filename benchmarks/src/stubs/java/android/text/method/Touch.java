@@ -0,0 +1,4 @@
+package android.text.method;
+
+public class Touch {
+}
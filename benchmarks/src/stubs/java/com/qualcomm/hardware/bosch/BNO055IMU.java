@@ -0,0 +1,18 @@
+package com.qualcomm.hardware.bosch;
+
+import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
+import org.firstinspires.ftc.robotcore.external.navigation.AxesOrder;
+import org.firstinspires.ftc.robotcore.external.navigation.AxesReference;
+import org.firstinspires.ftc.robotcore.external.navigation.Orientation;
+
+public interface BNO055IMU {
+
+    class Parameters {
+        public AngleUnit angleUnit = AngleUnit.RADIANS;
+    }
+
+    boolean initialize(Parameters parameters);
+
+    Orientation getAngularOrientation(AxesReference reference, AxesOrder order, AngleUnit angleUnit);
+
+}
@@ -0,0 +1,37 @@
+package com.qualcomm.hardware.lynx;
+
+import com.qualcomm.robotcore.hardware.HardwareDevice;
+
+// The SDK's class talks to a real hub, this one is meant to be extended by simulated hubs
+public abstract class LynxModule implements HardwareDevice {
+
+    public enum BulkCachingMode { OFF, MANUAL, AUTO }
+
+    public abstract void setBulkCachingMode(BulkCachingMode mode);
+
+    public abstract BulkCachingMode getBulkCachingMode();
+
+    public abstract void clearBulkCache();
+
+    public abstract BulkData getBulkData();
+
+    public static class BulkData {
+        private final int[] positions;
+        private final int[] velocities;
+        private final boolean[] busy;
+
+        // Not in the SDK (bulk data only comes from a hub there), lets simulated hubs fill one in
+        public BulkData(int[] positions, int[] velocities, boolean[] busy){
+            this.positions = positions;
+            this.velocities = velocities;
+            this.busy = busy;
+        }
+
+        public int getMotorCurrentPosition(int motorNum){ return positions[motorNum]; }
+
+        public int getMotorVelocity(int motorNum){ return velocities[motorNum]; }
+
+        public boolean isMotorBusy(int motorNum){ return busy[motorNum]; }
+    }
+
+}
@@ -0,0 +1,40 @@
+package com.qualcomm.robotcore.hardware;
+
+import com.qualcomm.robotcore.hardware.configuration.typecontainers.MotorConfigurationType;
+
+public interface DcMotor extends DcMotorSimple {
+
+    enum ZeroPowerBehavior { UNKNOWN, BRAKE, FLOAT }
+
+    enum RunMode { RUN_WITHOUT_ENCODER, RUN_USING_ENCODER, RUN_TO_POSITION, STOP_AND_RESET_ENCODER }
+
+    MotorConfigurationType getMotorType();
+
+    void setMotorType(MotorConfigurationType motorType);
+
+    DcMotorController getController();
+
+    int getPortNumber();
+
+    void setZeroPowerBehavior(ZeroPowerBehavior zeroPowerBehavior);
+
+    ZeroPowerBehavior getZeroPowerBehavior();
+
+    @Deprecated
+    void setPowerFloat();
+
+    boolean getPowerFloat();
+
+    void setTargetPosition(int position);
+
+    int getTargetPosition();
+
+    boolean isBusy();
+
+    int getCurrentPosition();
+
+    void setMode(RunMode mode);
+
+    RunMode getMode();
+
+}
@@ -0,0 +1,4 @@
+package com.qualcomm.robotcore.hardware;
+
+public interface DcMotorController extends HardwareDevice {
+}
@@ -0,0 +1,9 @@
+package com.qualcomm.robotcore.hardware;
+
+public interface DcMotorEx extends DcMotor {
+
+    void setVelocity(double angularRate);
+
+    double getVelocity();
+
+}
@@ -0,0 +1,15 @@
+package com.qualcomm.robotcore.hardware;
+
+public interface DcMotorSimple extends HardwareDevice {
+
+    enum Direction { FORWARD, REVERSE }
+
+    void setDirection(Direction direction);
+
+    Direction getDirection();
+
+    void setPower(double power);
+
+    double getPower();
+
+}
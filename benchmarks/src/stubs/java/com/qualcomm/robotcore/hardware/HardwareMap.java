@@ -0,0 +1,87 @@
+package com.qualcomm.robotcore.hardware;
+
+import android.content.Context;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class HardwareMap implements Iterable<HardwareDevice> {
+
+    public final Context appContext;
+
+    public final DeviceMapping<DcMotor> dcMotor = new DeviceMapping<>();
+    public final DeviceMapping<Servo> servo = new DeviceMapping<>();
+    public final DeviceMapping<TouchSensor> touchSensor = new DeviceMapping<>();
+    public final DeviceMapping<VoltageSensor> voltageSensor = new DeviceMapping<>();
+
+    // Every device by name, for get() and getAll()
+    private final Map<String, List<HardwareDevice>> allDevices = new LinkedHashMap<>();
+
+    public HardwareMap(Context appContext){
+        this.appContext = appContext;
+    }
+
+    public void put(String deviceName, HardwareDevice device){
+        List<HardwareDevice> devices = allDevices.get(deviceName);
+
+        if(devices == null){
+            devices = new ArrayList<>();
+            allDevices.put(deviceName, devices);
+        }
+
+        devices.add(device);
+    }
+
+    public <T> T get(Class<? extends T> classOrInterface, String deviceName){
+        List<HardwareDevice> devices = allDevices.get(deviceName);
+
+        if(devices != null){
+            for(HardwareDevice device : devices){
+                if(classOrInterface.isInstance(device)) return classOrInterface.cast(device);
+            }
+        }
+
+        throw new IllegalArgumentException("Unable to find a hardware device with name \"" + deviceName + "\" and type " + classOrInterface.getSimpleName());
+    }
+
+    public <T> List<T> getAll(Class<? extends T> classOrInterface){
+        List<T> result = new ArrayList<>();
+
+        for(HardwareDevice device : this){
+            if(classOrInterface.isInstance(device)) result.add(classOrInterface.cast(device));
+        }
+
+        return result;
+    }
+
+    public Iterator<HardwareDevice> iterator(){
+        List<HardwareDevice> devices = new ArrayList<>();
+        for(List<HardwareDevice> named : allDevices.values()) devices.addAll(named);
+
+        return devices.iterator();
+    }
+
+    public class DeviceMapping<DEVICE_TYPE extends HardwareDevice> implements Iterable<DEVICE_TYPE> {
+        private final Map<String, DEVICE_TYPE> map = new LinkedHashMap<>();
+
+        public DEVICE_TYPE get(String deviceName){
+            DEVICE_TYPE device = map.get(deviceName);
+            if(device == null) throw new IllegalArgumentException("Unable to find a hardware device with the name \"" + deviceName + "\"");
+
+            return device;
+        }
+
+        public void put(String deviceName, DEVICE_TYPE device){
+            map.put(deviceName, device);
+            HardwareMap.this.put(deviceName, device);
+        }
+
+        public Iterator<DEVICE_TYPE> iterator(){ return map.values().iterator(); }
+
+        public int size(){ return map.size(); }
+    }
+
+}
@@ -0,0 +1,9 @@
+package com.qualcomm.robotcore.hardware;
+
+public interface TouchSensor extends HardwareDevice {
+
+    double getValue();
+
+    boolean isPressed();
+
+}
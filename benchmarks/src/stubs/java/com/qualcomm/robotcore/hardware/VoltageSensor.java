@@ -0,0 +1,7 @@
+package com.qualcomm.robotcore.hardware;
+
+public interface VoltageSensor extends HardwareDevice {
+
+    double getVoltage();
+
+}
@@ -0,0 +1,4 @@
+package com.qualcomm.robotcore.hardware.configuration.typecontainers;
+
+public class MotorConfigurationType {
+}
@@ -0,0 +1,17 @@
+package org.firstinspires.ftc.robotcore.external;
+
+import org.firstinspires.ftc.robotcore.external.navigation.VuforiaLocalizer;
+import org.firstinspires.ftc.robotcore.external.tfod.TFObjectDetector;
+
+public abstract class ClassFactory {
+
+    // There is no camera off the robot
+    public static ClassFactory getInstance(){
+        throw new UnsupportedOperationException("Vuforia and TensorFlow need a robot");
+    }
+
+    public abstract VuforiaLocalizer createVuforia(VuforiaLocalizer.Parameters parameters);
+
+    public abstract TFObjectDetector createTFObjectDetector(TFObjectDetector.Parameters parameters, VuforiaLocalizer vuforiaLocalizer);
+
+}
@@ -0,0 +1,11 @@
+package org.firstinspires.ftc.robotcore.external;
+
+public interface Telemetry {
+
+    Object addData(String caption, Object value);
+
+    Object addData(String caption, String format, Object... args);
+
+    boolean update();
+
+}
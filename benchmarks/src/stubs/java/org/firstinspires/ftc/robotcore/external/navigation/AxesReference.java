@@ -0,0 +1,3 @@
+package org.firstinspires.ftc.robotcore.external.navigation;
+
+public enum AxesReference { EXTRINSIC, INTRINSIC }
@@ -0,0 +1,25 @@
+package org.firstinspires.ftc.robotcore.external.navigation;
+
+public class Orientation {
+
+    public AxesReference axesReference;
+    public AxesOrder axesOrder;
+    public AngleUnit angleUnit;
+    public float firstAngle;
+    public float secondAngle;
+    public float thirdAngle;
+    public long acquisitionTime;
+
+    public Orientation(){ }
+
+    public Orientation(AxesReference axesReference, AxesOrder axesOrder, AngleUnit angleUnit, float firstAngle, float secondAngle, float thirdAngle, long acquisitionTime){
+        this.axesReference = axesReference;
+        this.axesOrder = axesOrder;
+        this.angleUnit = angleUnit;
+        this.firstAngle = firstAngle;
+        this.secondAngle = secondAngle;
+        this.thirdAngle = thirdAngle;
+        this.acquisitionTime = acquisitionTime;
+    }
+
+}
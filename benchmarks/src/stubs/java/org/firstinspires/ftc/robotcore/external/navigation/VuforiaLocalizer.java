@@ -0,0 +1,12 @@
+package org.firstinspires.ftc.robotcore.external.navigation;
+
+public interface VuforiaLocalizer {
+
+    enum CameraDirection { BACK, FRONT }
+
+    class Parameters {
+        public String vuforiaLicenseKey;
+        public CameraDirection cameraDirection = CameraDirection.BACK;
+    }
+
+}
@@ -0,0 +1,7 @@
+package org.firstinspires.ftc.robotcore.external.tfod;
+
+public interface Recognition {
+
+    String getLabel();
+
+}
@@ -0,0 +1,25 @@
+package org.firstinspires.ftc.robotcore.external.tfod;
+
+import java.util.List;
+
+public interface TFObjectDetector {
+
+    class Parameters {
+        public float minResultConfidence = 0.4f;
+
+        public Parameters(){ }
+
+        public Parameters(int tfodMonitorViewIdParent){ }
+    }
+
+    void loadModelFromAsset(String assetName, String... labels);
+
+    void activate();
+
+    void shutdown();
+
+    List<Recognition> getUpdatedRecognitions();
+
+    List<Recognition> getRecognitions();
+
+}
@@ -0,0 +1,5 @@
+package org.firstinspires.ftc.teamcode;
+
+// Generated from the TeamCode resources in an app build
+public final class R {
+}
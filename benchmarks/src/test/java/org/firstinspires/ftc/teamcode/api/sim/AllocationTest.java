@@ -0,0 +1,188 @@
+/*
+Allocation Test
+Runs the odometry and controller loops on SimRobot and checks that a cycle allocates nothing once the JIT has warmed up,
+since every allocated byte eventually becomes a GC pause on the Control Hub (and a missed loop deadline)
+Bytes are counted per thread by the JVM (com.sun.management.ThreadMXBean), so only the code being checked counts
+Part of gradle test in benchmarks/ (gradle test -PnoEscapeAnalysis also catches allocations only HotSpot optimizes away)
+*/
+
+package org.firstinspires.ftc.teamcode.api.sim;
+
+import org.firstinspires.ftc.teamcode.api.ControlledDrivetrain;
+import org.firstinspires.ftc.teamcode.api.DcMotorX;
+import org.firstinspires.ftc.teamcode.api.FlightRecorder;
+import org.firstinspires.ftc.teamcode.api.LatencyMonitor;
+import org.firstinspires.ftc.teamcode.api.MutablePose2d;
+import org.firstinspires.ftc.teamcode.api.Odometry;
+import org.firstinspires.ftc.teamcode.api.Path;
+import org.firstinspires.ftc.teamcode.api.RobotClock;
+import org.firstinspires.ftc.teamcode.api.VirtualClock;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+public class AllocationTest {
+
+    // Cycles run before measuring (enough for the JIT to compile the loops), and cycles measured
+    private static final int WARMUP_CYCLES = 20000;
+    private static final int MEASURED_CYCLES = 10000;
+    // Control cycle (nanoseconds)
+    private static final long CYCLE = 10000000L;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final SimRobot robot = new SimRobot();
+    private final VirtualClock clock = new VirtualClock();
+    private Odometry odometry;
+    private ControlledDrivetrain drivetrain;
+    private final double[] encoders = new double[3];
+    // Reused for the setpoints the checks drive to
+    private final MutablePose2d target = new MutablePose2d();
+    // Whether cycles are only warming the JIT up (and aren't being measured)
+    private boolean warmingUp;
+
+    @Before
+    public void setUp(){
+        assumeTrue("This JVM can't count allocated bytes per thread", THREADS.isThreadAllocatedMemorySupported());
+        THREADS.setThreadAllocatedMemoryEnabled(true);
+
+        RobotClock.setDefault(clock);
+
+        DcMotorX mRF = new DcMotorX(robot.hardwareMap.dcMotor.get("mRF"));
+        DcMotorX mLF = new DcMotorX(robot.hardwareMap.dcMotor.get("mLF"));
+        DcMotorX mRB = new DcMotorX(robot.hardwareMap.dcMotor.get("mRB"));
+        DcMotorX mLB = new DcMotorX(robot.hardwareMap.dcMotor.get("mLB"));
+
+        DcMotorX wheelR = new DcMotorX(robot.hardwareMap.dcMotor.get("mRB"), 8192, 15.71);
+        DcMotorX wheelL = new DcMotorX(robot.hardwareMap.dcMotor.get("mLF"), 8192, 15.71);
+        DcMotorX wheelB = new DcMotorX(robot.hardwareMap.dcMotor.get("mRF"), 8192, 15.71);
+
+        odometry = new Odometry(wheelR, wheelL, wheelB, 10, -41.577/(2*Math.PI), 40.8, 0, 0, 0);
+        drivetrain = new ControlledDrivetrain(mRF, mLF, mRB, mLB, odometry);
+        drivetrain.reverse();
+        drivetrain.setActive(true);
+        odometry.startTracking();
+
+        RobotClock.setDefault(RobotClock.REAL);
+    }
+
+    @Test
+    public void loopsDontAllocate(){
+        assertNoAllocations("", null);
+    }
+
+    // Diagnostics sit on the same loops, so they must not allocate either
+    @Test
+    public void loopsDontAllocateWhileLogged() throws IOException {
+        FlightRecorder recorder = new FlightRecorder(folder.newFile("flight.log"), 1 << 16, 50);
+        drivetrain.setFlightRecorder(recorder);
+        drivetrain.setLatencyMonitor(new LatencyMonitor());
+
+        try {
+            assertNoAllocations(" (logged)", recorder);
+        } finally {
+            drivetrain.setFlightRecorder(null);
+            recorder.close();
+        }
+    }
+
+    // Measure every loop, failing with all of their results if any of them allocates
+    private void assertNoAllocations(String suffix, FlightRecorder recorder){
+        StringBuilder results = new StringBuilder("bytes/cycle:");
+        boolean passed = true;
+
+        for(Loop loop : Loop.values()){
+            double bytes = measure(loop);
+            results.append(String.format("%n%-29s %.2f", loop.description + suffix, bytes));
+            if(bytes > 0) passed = false;
+
+            // Keep the flight recorder's ring from filling (off the measured thread's books, it isn't part of a cycle)
+            if(recorder != null) recorder.drain();
+        }
+
+        assertTrue(results.toString(), passed);
+    }
+
+    // Average bytes the calling thread allocates per cycle of a loop (after warming it up)
+    private double measure(Loop loop){
+        warmingUp = true;
+        start(loop);
+        for(int i = 0; i < WARMUP_CYCLES; i++) cycle(loop, i);
+
+        warmingUp = false;
+        start(loop);
+        long threadId = Thread.currentThread().getId();
+        long before = THREADS.getThreadAllocatedBytes(threadId);
+
+        for(int i = 0; i < MEASURED_CYCLES; i++) cycle(loop, i);
+
+        long after = THREADS.getThreadAllocatedBytes(threadId);
+        return (double) (after - before)/MEASURED_CYCLES;
+    }
+
+    // Put the robot back at the origin and give the loop its setpoint (the measured cycles follow one move to the end)
+    private void start(Loop loop){
+        robot.setPose(0, 0, 0);
+        odometry.startTracking();
+        odometry.reset(target.set(0, 0, 0));
+        drivetrain.setPosition(target);
+
+        if(loop == Loop.PROFILE) drivetrain.setProfiledPosition(target.set(60, 60, Math.PI/2));
+        if(loop == Loop.PATH) drivetrain.followPath(Path.polyline(1, new double[]{0, 0, 0}, new double[]{0, 150, 0}, new double[]{150, 150, 0}));
+    }
+
+    // One cycle of a loop, then move the robot and the clock along to the next one
+    private void cycle(Loop loop, int i){
+        switch(loop){
+            case ODOMETRY:
+                odometry.update();
+                break;
+            case CONTROL:
+                odometry.update();
+                drivetrain.update();
+                // Move the setpoint every so often, like an OpMode would
+                if(i % 100 == 0) drivetrain.setPosition(target.set(i % 200 == 0 ? 20 : 0, 0, 0));
+                break;
+            case FUSED:
+            case PROFILE:
+            case PATH:
+                // The fused loop's cycle (see ControlledDrivetrain.runFused())
+                odometry.readEncoders(encoders);
+                odometry.update(encoders[0], encoders[1], encoders[2], clock.nanoTime());
+                drivetrain.compute();
+                drivetrain.apply();
+                break;
+        }
+
+        // Keep the moves going while warming up, so their code gets compiled too (planning a move allocates, once per move)
+        if(warmingUp && i % 500 == 499 && (loop == Loop.PROFILE || loop == Loop.PATH)) start(loop);
+
+        robot.advance(CYCLE/1e9);
+        clock.advance(CYCLE);
+    }
+
+    // Loops to check
+    private static enum Loop {
+        ODOMETRY("odometry update"),
+        CONTROL("odometry + control update"),
+        FUSED("fused cycle"),
+        PROFILE("fused cycle, profiled move"),
+        PATH("fused cycle, path following");
+
+        final String description;
+
+        Loop(String description){ this.description = description; }
+    }
+
+}
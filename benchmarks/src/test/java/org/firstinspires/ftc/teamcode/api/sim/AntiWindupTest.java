@@ -0,0 +1,110 @@
+/*
+Anti-Windup Test
+Drives a long unprofiled step on SimRobot, so the x correction stays clipped at the output limit for most of the approach,
+and checks the x integral with the flight recorder: while the output is clipped the I term must never pull against the
+error, and the robot must still settle on the target (an integral wound the wrong way leaves it stalled short)
+*/
+
+package org.firstinspires.ftc.teamcode.api.sim;
+
+import org.firstinspires.ftc.teamcode.api.ControlledDrivetrain;
+import org.firstinspires.ftc.teamcode.api.DcMotorX;
+import org.firstinspires.ftc.teamcode.api.FlightLog;
+import org.firstinspires.ftc.teamcode.api.FlightRecorder;
+import org.firstinspires.ftc.teamcode.api.Odometry;
+import org.firstinspires.ftc.teamcode.api.RobotClock;
+import org.firstinspires.ftc.teamcode.api.VirtualClock;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AntiWindupTest {
+
+    // Control cycle (milliseconds)
+    private static final int CYCLE = 10;
+    // Length of the step (cm) and how long the robot gets to settle on it (seconds)
+    private static final double STEP = 150;
+    private static final double DURATION = 6;
+    // How close counts as settled (cm)
+    private static final double TOLERANCE = 1;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void saturatedStepSettles() throws IOException {
+        SimRobot robot = new SimRobot();
+        VirtualClock clock = new VirtualClock();
+        RobotClock.setDefault(clock);
+
+        ControlledDrivetrain drivetrain;
+        Odometry odometry;
+        try {
+            DcMotorX wheelR = new DcMotorX(robot.hardwareMap.dcMotor.get("mRB"), 8192, 15.71);
+            DcMotorX wheelL = new DcMotorX(robot.hardwareMap.dcMotor.get("mLF"), 8192, 15.71);
+            DcMotorX wheelB = new DcMotorX(robot.hardwareMap.dcMotor.get("mRF"), 8192, 15.71);
+            odometry = new Odometry(wheelR, wheelL, wheelB, CYCLE, -41.577/(2*Math.PI), 40.8, 0, 0, 0);
+
+            drivetrain = new ControlledDrivetrain(
+                    new DcMotorX(robot.hardwareMap.dcMotor.get("mRF")),
+                    new DcMotorX(robot.hardwareMap.dcMotor.get("mLF")),
+                    new DcMotorX(robot.hardwareMap.dcMotor.get("mRB")),
+                    new DcMotorX(robot.hardwareMap.dcMotor.get("mLB")),
+                    odometry, 1, 1, 0.02,
+                    // The default gains, with an I term on every coordinate
+                    new double[]{0.12, 0.05, 2.48}, new double[]{0.001, 0.001, 0.01}, new double[]{0.01209, 0.012, 0.14},
+                    CYCLE
+            );
+        } finally {
+            RobotClock.setDefault(RobotClock.REAL);
+        }
+
+        drivetrain.reverse();
+        odometry.startTracking();
+        drivetrain.setPosition(STEP, 0, 0);
+        drivetrain.setActive(true);
+
+        File log = folder.newFile("step.log");
+        FlightRecorder recorder = new FlightRecorder(log, 1 << 12, 50);
+        drivetrain.setFlightRecorder(recorder);
+
+        for(int i = 0; i < DURATION*1000/CYCLE; i++){
+            odometry.update();
+            drivetrain.update();
+
+            robot.advance(CYCLE/1000.0);
+            clock.advance(CYCLE*1000000L);
+        }
+
+        drivetrain.setFlightRecorder(null);
+        recorder.close();
+
+        FlightLog flight = new FlightLog(log);
+        int clipped = 0;
+        double settledAt = -1;
+
+        for(int cycle = 0; flight.next(); cycle++){
+            double error = flight.get(FlightRecorder.Field.X_ERROR);
+            double I = flight.get(FlightRecorder.Field.X_I);
+            double U = flight.get(FlightRecorder.Field.X_P) + I + flight.get(FlightRecorder.Field.X_D);
+
+            if(Math.abs(U) > drivetrain.outputLimit[0]){
+                clipped++;
+                if(I*error < 0) fail(String.format("I term %.3f pulls against an error of %.1f cm while clipped (%.2f s)", I, error, cycle*CYCLE/1000.0));
+            }
+
+            if(Math.abs(error) > TOLERANCE) settledAt = -1;
+            else if(settledAt < 0) settledAt = cycle*CYCLE/1000.0;
+        }
+
+        assertTrue("The step should clip the output for most of the approach", clipped*CYCLE/1000.0 > 0.5);
+        assertTrue("Robot should settle within " + TOLERANCE + " cm of the target", settledAt >= 0);
+    }
+
+}
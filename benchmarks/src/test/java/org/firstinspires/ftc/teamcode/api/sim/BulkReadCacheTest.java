@@ -0,0 +1,113 @@
+/*
+Bulk Read Cache Test
+Checks BulkReadCache against a StubHub on a VirtualClock: reads between refreshes share one hub transaction, invalidate()
+and the maximum age force a new one, and a reversed motor's bulk position (which the hub doesn't adjust for direction)
+comes out of DcMotorX with the same sign as a direct read
+*/
+
+package org.firstinspires.ftc.teamcode.api.sim;
+
+import com.qualcomm.robotcore.hardware.DcMotorSimple;
+
+import org.firstinspires.ftc.teamcode.api.BulkReadCache;
+import org.firstinspires.ftc.teamcode.api.DcMotorX;
+import org.firstinspires.ftc.teamcode.api.VirtualClock;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BulkReadCacheTest {
+
+    // Oldest the cached values can get (nanoseconds)
+    private static final long MAX_AGE = 10000000L;
+
+    private StubHub hub;
+    private VirtualClock clock;
+    private BulkReadCache cache;
+
+    @Before
+    public void setUp(){
+        hub = new StubHub();
+        clock = new VirtualClock();
+        cache = new BulkReadCache(hub, MAX_AGE);
+        cache.setClock(clock);
+    }
+
+    @Test
+    public void readsShareOneTransaction(){
+        hub.setPosition(0, 100);
+        hub.setPosition(3, -40);
+        hub.setBusy(2, true);
+
+        assertEquals(100, cache.getPosition(0));
+        assertEquals(-40, cache.getPosition(3));
+        assertTrue(cache.isBusy(2));
+        assertFalse(cache.isBusy(1));
+        assertEquals(0, cache.getPosition(1));
+
+        assertEquals(1, cache.getTransactions());
+        assertEquals(1, hub.getReads());
+    }
+
+    @Test
+    public void invalidateRefreshes(){
+        hub.setPosition(0, 100);
+        assertEquals(100, cache.getPosition(0));
+
+        // Still the cached value until the cache is invalidated
+        hub.setPosition(0, 250);
+        assertEquals(100, cache.getPosition(0));
+        assertEquals(1, cache.getTransactions());
+
+        cache.invalidate();
+        assertEquals(250, cache.getPosition(0));
+        assertEquals(250, cache.getPosition(0));
+        assertEquals(2, cache.getTransactions());
+    }
+
+    @Test
+    public void maxAgeRefreshes(){
+        hub.setPosition(0, 100);
+        assertEquals(100, cache.getPosition(0));
+
+        hub.setPosition(0, 250);
+        clock.advance(MAX_AGE);
+        assertEquals(100, cache.getPosition(0));
+        assertEquals(1, cache.getTransactions());
+
+        // Older than the maximum age now
+        clock.advance(1);
+        assertEquals(250, cache.getPosition(0));
+        assertEquals(2, cache.getTransactions());
+    }
+
+    @Test
+    public void reversedMotorIsNegated(){
+        StubMotor forward = new StubMotor("forward", 0);
+        StubMotor reversed = new StubMotor("reversed", 1);
+        reversed.setDirection(DcMotorSimple.Direction.REVERSE);
+
+        // One tick per distance unit, so positions read back in ticks
+        DcMotorX forwardX = new DcMotorX(forward, 1, 1);
+        DcMotorX reversedX = new DcMotorX(reversed, 1, 1);
+
+        // What the motors read without the cache (the SDK adjusts getCurrentPosition() for direction)
+        forward.setCurrentPosition(500);
+        reversed.setCurrentPosition(500);
+        double forwardDirect = forwardX.getPosition();
+        double reversedDirect = reversedX.getPosition();
+        assertEquals(-500, reversedDirect, 0);
+
+        // Bulk data is raw, the hub reports the same 500 ticks for both
+        hub.setPosition(0, 500);
+        hub.setPosition(1, 500);
+        cache.attach(forwardX, reversedX);
+
+        assertEquals(forwardDirect, forwardX.getPosition(), 0);
+        assertEquals(reversedDirect, reversedX.getPosition(), 0);
+    }
+
+}
@@ -5,13 +5,16 @@ import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
 
 import org.firstinspires.ftc.teamcode.api.DcMotorX;
 import org.firstinspires.ftc.teamcode.api.Drivetrain;
+import org.firstinspires.ftc.teamcode.api.RobotClock;
 
 @Autonomous
 public class AutonBasic extends LinearOpMode {
 
     private Drivetrain drivetrain;
 
-    public void runOpMode(){
+    public void runOpMode() throws InterruptedException {
+        RobotClock clock = RobotClock.getDefault();
+
         DcMotorX mRF= new DcMotorX(hardwareMap.dcMotor.get("mRF")),
                 mLF = new DcMotorX(hardwareMap.dcMotor.get("mLF")),
                 mRB = new DcMotorX(hardwareMap.dcMotor.get("mRB")),
@@ -21,10 +24,11 @@ public class AutonBasic extends LinearOpMode {
 
         waitForStart();
 
-        long start = System.currentTimeMillis();
+        long start = clock.millis();
 
-        while(System.currentTimeMillis() - start < 1000 && !isStopRequested()){
+        while(clock.millis() - start < 1000 && !isStopRequested()){
             drivetrain.drive(0.5, Drivetrain.Direction.FORWARD);
+            clock.sleep(10);
         }
 
         drivetrain.stop();
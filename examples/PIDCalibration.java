@@ -4,8 +4,13 @@ import com.qualcomm.robotcore.eventloop.opmode.OpMode;
 import com.qualcomm.robotcore.eventloop.opmode.TeleOp;
 
 import org.firstinspires.ftc.teamcode.api.ControlledDrivetrain;
+import org.firstinspires.ftc.teamcode.api.ControllerGains;
 import org.firstinspires.ftc.teamcode.api.DcMotorX;
+import org.firstinspires.ftc.teamcode.api.MutablePose2d;
 import org.firstinspires.ftc.teamcode.api.Odometry;
+import org.firstinspires.ftc.teamcode.api.OdometryConfig;
+import org.firstinspires.ftc.teamcode.api.RelayAutoTuner;
+import org.firstinspires.ftc.teamcode.api.RobotClock;
 import org.firstinspires.ftc.teamcode.api.State;
 
 @TeleOp
@@ -14,9 +19,9 @@ public class PIDCalibration extends OpMode {
     // Encoder wheel information
     private double circumference = 15.71;
     private int ticksPerRev = 8192;
-    // Robot width and back encoder wheel ticks per degree
-    private double width = 40.8;
-    private double backDistancePerDegree = 41.577/(2*Math.PI);
+    // Robot width and back encoder wheel distance per radian of rotation (used until a calibration has been saved)
+    private double width = OdometryConfig.DEFAULT_WIDTH;
+    private double backDistancePerRadian = OdometryConfig.DEFAULT_BACK_DISTANCE_PER_RADIAN;
 
     // Size of a tile on the field (in cm)
     private final double TILE_SIZE = 59.69;
@@ -34,13 +39,23 @@ public class PIDCalibration extends OpMode {
     // Coordinate to calibrate
     private PIDCalibration.CalibrationMode mode = PIDCalibration.CalibrationMode.PHI;
     // Test setpoint
-    private double setpoint = 2*Math.PI;
+    // (heading error is wrapped, so a full turn would be no move at all)
+    private double setpoint = Math.PI/2;
+
+    // Relay test settings for auto-tuning (power, and how far past the target before switching for x/y and phi)
+    private double relayAmplitude = 0.3;
+    private double relayHysteresis = 0.5;
+    private double relayHysteresisPhi = 0.01;
 
     // Controller for tuning
     private ControlledDrivetrain drivetrain;
+    // Auto-tune in progress (null if none)
+    private RelayAutoTuner tuner = null;
     // Saved button states
     private State.Buttons lastButtons = new State.Buttons();
     private State.Dpad lastDpads = new State.Dpad();
+    // Reused to read the pose for telemetry every loop
+    private final MutablePose2d pose = new MutablePose2d();
 
     public void init(){
         // Get all of the drivetrain motors
@@ -53,8 +68,9 @@ public class PIDCalibration extends OpMode {
                 wheelL = new DcMotorX(hardwareMap.dcMotor.get("mLF"), ticksPerRev, circumference),
                 wheelB = new DcMotorX(hardwareMap.dcMotor.get("mRF"), ticksPerRev, circumference);
 
-        // Create an odometry instance for the drivetrain
-        Odometry positionTracker = new Odometry(wheelR, wheelL, wheelB, 50, backDistancePerDegree, width, 0, 0, 0);
+        // Create an odometry instance for the drivetrain (calibrated geometry is used if it has been saved)
+        OdometryConfig odometryConfig = OdometryConfig.load(OdometryConfig.DEFAULT_FILE, width, backDistancePerRadian);
+        Odometry positionTracker = new Odometry(wheelR, wheelL, wheelB, 50, odometryConfig, 0, 0, 0);
 
         // Instantiate the PID-controlled drivetrain
         drivetrain = new ControlledDrivetrain(mRF, mLF, mRB, mLB, positionTracker);
@@ -62,10 +78,19 @@ public class PIDCalibration extends OpMode {
         drivetrain.reverse();
         // Adding logging to drivetrain (only needed for development)
         drivetrain.telemetry = telemetry;
+        // Start from the saved (e.g. auto-tuned) gains if there are any
+        if(ControllerGains.DEFAULT_FILE.exists()){
+            drivetrain.setGains(ControllerGains.load(ControllerGains.DEFAULT_FILE, drivetrain.getGains()));
+
+            int i = getModeIndex();
+            Kp = drivetrain.Kp[i];
+            Ki = drivetrain.Ki[i];
+            Kd = drivetrain.Kd[i];
+        }
         // Start with the drivetrain off
         drivetrain.setActive(false);
         // Run it on a separate thread
-        Thread drivetrainThread = new Thread(drivetrain);
+        Thread drivetrainThread = RobotClock.getDefault().newThread(drivetrain);
         drivetrainThread.start();
 
         // Apply predefined settings
@@ -87,10 +112,12 @@ public class PIDCalibration extends OpMode {
         boolean a = gamepad1.a;
         boolean b = gamepad1.b;
         boolean x = gamepad1.x;
+        boolean y = gamepad1.y;
 
         boolean aHit = a && !lastButtons.a;
         boolean bHit = b && !lastButtons.b;
         boolean xHit = x && !lastButtons.x;
+        boolean yHit = y && !lastButtons.y;
         boolean dpadUpHit = dpadUp && !lastDpads.dpad_up;
         boolean dpadDownHit = dpadDown && !lastDpads.dpad_down;
         boolean dpadRightHit = dpadRight && !lastDpads.dpad_right;
@@ -102,13 +129,21 @@ public class PIDCalibration extends OpMode {
             drivetrain.stop();
         }
 
+        // Auto-tune finished, keep the gains it found
+        if(tuner != null && !drivetrain.isAutoTuning()){
+            finishAutoTune();
+        }
+
         if(drivetrain.getActive()) {
+            if(tuner != null) telemetry.addData("Auto-tuning, oscillations measured", tuner.getCyclesMeasured());
+
             // If a test is running, log tracking information
             telemetry.addData("Setpoint", setpoint);
             telemetry.addData("Mode index", getModeIndex());
-            telemetry.addData("x", drivetrain.positionTracker.x);
-            telemetry.addData("y", drivetrain.positionTracker.y);
-            telemetry.addData("Heading", drivetrain.positionTracker.phi);
+            drivetrain.positionTracker.getPose(pose);
+            telemetry.addData("x", pose.x);
+            telemetry.addData("y", pose.y);
+            telemetry.addData("Heading", pose.phi);
         }else{
             // Start/restart position control
             if(aHit){
@@ -121,6 +156,16 @@ public class PIDCalibration extends OpMode {
                 drivetrain.setActive(true);
             }
 
+            // Auto-tune the selected coordinate with a relay test (the robot will shake back and forth around where it is)
+            if(yHit){
+                drivetrain.positionTracker.reset();
+                drivetrain.stop();
+
+                tuner = new RelayAutoTuner(relayAmplitude, mode == CalibrationMode.PHI ? relayHysteresisPhi : relayHysteresis, 4);
+                drivetrain.startAutoTune(getModeIndex(), tuner);
+                drivetrain.setActive(true);
+            }
+
             // Select a coefficient to edit
             if(xHit){
                 editingIdx = editingIdx < editingOptions.length - 1 ? editingIdx + 1 : 0;
@@ -151,7 +196,7 @@ public class PIDCalibration extends OpMode {
 
         // Update past controller states
         lastDpads.update(dpadUp, dpadDown, dpadRight, dpadLeft);
-        lastButtons.update(a, b, x, false);
+        lastButtons.update(a, b, x, y);
     }
 
     public void stop(){
@@ -160,6 +205,25 @@ public class PIDCalibration extends OpMode {
         drivetrain.stopController();
     }
 
+    private void finishAutoTune(){
+        drivetrain.setActive(false);
+        drivetrain.stop();
+
+        int i = getModeIndex();
+        Kp = drivetrain.Kp[i];
+        Ki = drivetrain.Ki[i];
+        Kd = drivetrain.Kd[i];
+
+        // Save every coordinate's gains so the other OpModes pick them up
+        try {
+            drivetrain.getGains().save(ControllerGains.DEFAULT_FILE);
+        } catch (Exception e) {
+            telemetry.addData("Error saving gains", e);
+        }
+
+        tuner = null;
+    }
+
     private void initializeCoefficients(){
         int i = getModeIndex();
 
@@ -177,10 +241,9 @@ public class PIDCalibration extends OpMode {
     }
 
     private void setPosition(){
-        // Create and register the setpoint
-        double[] coords = new double[]{0,0,0};
-        coords[getModeIndex()] = setpoint;
-        drivetrain.setPosition(coords);
+        // Register the setpoint on the coordinate being calibrated
+        int index = getModeIndex();
+        drivetrain.setPosition(index == 0 ? setpoint : 0, index == 1 ? setpoint : 0, index == 2 ? setpoint : 0);
     }
 
     private int getModeIndex(){
@@ -0,0 +1,404 @@
+/*
+Auton Route
+Hardware setup and route of the Ultimate Goal autonomous, shared by the Auton OpMode and the simulator (gradle driveSim in
+benchmarks/), so the route that gets simulated is always the one the robot drives
+Create it during init, then after the start button: start(), driveToStack() while looking at the starter stack, run(zone)
+with the target zone found, and shutdown() in a finally so the threads stop however the route ends
+Override isStopRequested() to end the route early (e.g. when the OpMode is stopped) and arrived() to watch every move
+*/
+
+package org.firstinspires.ftc.teamcode.api.examples.ultimategoal;
+
+import com.qualcomm.hardware.lynx.LynxModule;
+import com.qualcomm.robotcore.hardware.HardwareMap;
+
+import org.firstinspires.ftc.teamcode.api.ArrivalFuture;
+import org.firstinspires.ftc.teamcode.api.BulkReadCache;
+import org.firstinspires.ftc.teamcode.api.ControlledDrivetrain;
+import org.firstinspires.ftc.teamcode.api.ControllerGains;
+import org.firstinspires.ftc.teamcode.api.DcMotorX;
+import org.firstinspires.ftc.teamcode.api.LimitedMotorX;
+import org.firstinspires.ftc.teamcode.api.Odometry;
+import org.firstinspires.ftc.teamcode.api.OdometryConfig;
+import org.firstinspires.ftc.teamcode.api.Path;
+import org.firstinspires.ftc.teamcode.api.Pose;
+import org.firstinspires.ftc.teamcode.api.RobotClock;
+import org.firstinspires.ftc.teamcode.api.ServoX;
+import org.firstinspires.ftc.teamcode.api.VoltageCompensator;
+
+public class AutonRoute {
+
+    // Odometry parameters
+    private int ticksPerRev = 8192;
+    private double circumference = 15.71;
+    private double width = OdometryConfig.DEFAULT_WIDTH;
+    private double backDistancePerRadian = OdometryConfig.DEFAULT_BACK_DISTANCE_PER_RADIAN;
+
+    public final double TILE_SIZE = 60.96;
+
+    // Arm starting position
+    private final double offset = -60;
+    // Where the robot starts (in cm from the right wall)
+    public final double x0 = 112.395;
+    public final double y0 = 0;
+    public final double phi0 = /*-0.25*Math.PI/180*/0;
+    private final double[] DETECTION_POS = new double[]{1.6*TILE_SIZE, 0.8*TILE_SIZE - 5};
+
+    //private final double[] AVOID_STACK_POS = new double[]{3*TILE_SIZE, 2.2*TILE_SIZE};
+    //private final double[] AVOID_STACK_THRESH = new double[]{4,4,3};
+
+    private final double[] SHOOTING_POS = new double[]{100.2 + 2.5, 148 + 3};
+
+    private final double[] POWER_SHOTS_X = new double[]{174.6, 160.2, 135.9};
+    private final double[] POWER_SHOTS_Y = new double[]{146,150.3,153.47};
+
+    private final double[] DROP_ZONES_X = new double[]{32.55 + 10 + 5 + 10, 103.1 + 8 + 5, 43.8 + 12 - 7};
+    private final double[] DROP_ZONES_Y = new double[]{205.1 - 2, 258.9 + 1, 307.1 + 2.5};
+
+    private final double WOBBLE_X = 89;
+    private final double WOBBLE_Y = 42;
+
+    // Longest a single move is waited on (in milliseconds), so a robot that can't reach its target doesn't hang the route
+    private final long MOVE_TIMEOUT = 8000;
+
+    public ControlledDrivetrain drivetrain;
+    public Odometry positionTracker;
+    public VoltageCompensator voltageCompensator;
+
+    private DcMotorX
+        mRF,
+        mLF,
+        mRB,
+        mLB,
+        wheelR,
+        wheelL,
+        wheelB,
+        launcher,
+        intake,
+        intakeWheels;
+
+    private LimitedMotorX arm;
+
+    private ServoX
+        flipper,
+        claw;
+
+    private Thread drivetrainThread;
+    private Thread voltageThread;
+
+    // Clock for every wait and thread (set a VirtualClock as the default before creating the route to run it in simulated time)
+    private final RobotClock clock = RobotClock.getDefault();
+
+    public AutonRoute(HardwareMap hardwareMap){
+        // Get all of the drivetrain motors
+        mRF = new DcMotorX(hardwareMap.dcMotor.get("mRF"));
+        mLF = new DcMotorX(hardwareMap.dcMotor.get("mLF"));
+        mRB = new DcMotorX(hardwareMap.dcMotor.get("mRB"));
+        mLB = new DcMotorX(hardwareMap.dcMotor.get("mLB"));
+
+        // Get the odometry wheels
+        wheelR = new DcMotorX(hardwareMap.dcMotor.get("mRB"), ticksPerRev, circumference);
+        wheelL = new DcMotorX(hardwareMap.dcMotor.get("mLF"), ticksPerRev, circumference);
+        wheelB = new DcMotorX(hardwareMap.dcMotor.get("mRF"), ticksPerRev, circumference);
+
+        // Create an odometry instance for the drivetrain (calibrated geometry is used if it has been saved)
+        OdometryConfig odometryConfig = OdometryConfig.load(OdometryConfig.DEFAULT_FILE, width, backDistancePerRadian);
+        positionTracker = new Odometry(wheelR, wheelL, wheelB, 50, odometryConfig, x0, y0, phi0);
+
+        // Instantiate the PID-controlled drivetrain
+        drivetrain = new ControlledDrivetrain(mRF, mLF, mRB, mLB, positionTracker);
+        drivetrain.reverse();
+        // Use the tuned gains if they have been saved
+        drivetrain.setGains(ControllerGains.load(ControllerGains.DEFAULT_FILE, drivetrain.getGains()));
+        // Run odometry and control on one thread so each correction uses the pose from the same cycle
+        drivetrain.loopMode = ControlledDrivetrain.LoopMode.FUSED;
+        // Keep drive power (and so the gains) consistent as the battery drains
+        voltageCompensator = new VoltageCompensator(hardwareMap);
+        drivetrain.setVoltageCompensator(voltageCompensator);
+
+        // Register the Wobble Arm
+        arm = new LimitedMotorX(hardwareMap.dcMotor.get("arm"), 3*288, 360);
+        arm.setLowerLimit(hardwareMap.touchSensor.get("armLimit"));
+        arm.setBrake(true);
+
+        launcher = new DcMotorX(hardwareMap.dcMotor.get("launcher"));
+        launcher.controlVelocity();
+
+        flipper = new ServoX(hardwareMap.servo.get("flipper"));
+        flipper.setAngle(50);
+
+        intake = new DcMotorX(hardwareMap.dcMotor.get("intake"));
+        intake.setBrake(true);
+
+        intakeWheels = new DcMotorX(hardwareMap.dcMotor.get("intakeWheels"));
+
+        claw = new ServoX(hardwareMap.servo.get("claw"), 270, 180);
+        claw.setAngle(0);
+
+        // Read each hub's encoders in one transaction per cycle (drivetrain and odometry on the Control Hub, the rest on
+        // the Expansion Hub, change the names and motors to match the robot's configuration)
+        BulkReadCache controlHub = new BulkReadCache(hardwareMap.get(LynxModule.class, "Control Hub"));
+        controlHub.attach(mRF, mLF, mRB, mLB, wheelR, wheelL, wheelB);
+        BulkReadCache expansionHub = new BulkReadCache(hardwareMap.get(LynxModule.class, "Expansion Hub 2"));
+        expansionHub.attach(arm, launcher, intake, intakeWheels);
+    }
+
+    // Whether the route should end early, checked between (and during) moves
+    // The default only notices the thread being interrupted, an OpMode should check its own stop request
+    protected boolean isStopRequested(){
+        return Thread.currentThread().isInterrupted();
+    }
+
+    // Called at the end of every move the route waits on, with whether the robot arrived and how long it took (nanoseconds)
+    protected void arrived(boolean arrived, long time){ }
+
+    // Start the controller and voltage compensation, and zero the arm (call once the OpMode starts)
+    public void start(){
+        // Run them in separate threads
+        drivetrainThread = clock.newThread(drivetrain);
+        drivetrainThread.start();
+        voltageThread = clock.newThread(voltageCompensator);
+        voltageThread.start();
+
+        // Zero arm position
+        arm.reset();
+        arm.goToPosition(-33, 1);
+    }
+
+    // Head for where the starter stack can be seen (doesn't wait, look for rings on the way)
+    public void driveToStack(){
+        drivetrain.setActive(true);
+        setPosition(DETECTION_POS[0], DETECTION_POS[1],0);
+    }
+
+    // The rest of the route, once the target zone ('a', 'b' or 'c') is known
+    public void run(char zone) throws InterruptedException {
+        // Shoot 3 rings
+        shootHighGoal(false);
+        // Drop wobble #1
+        driveToTargetZone(zone);
+
+        // Drive to wobble #2
+        pickUpWobble(zone);
+
+        if (zone == 'c') {
+            shootHighGoal(true);
+        }
+
+        // Drop wobble #2
+        driveToTargetZone(zone, 10, 15);
+
+        // Park the robot on the launch line based on where it is after driving to target zone
+        if(zone != 'b'){
+            parkOverLaunchLine(zone);
+        }
+    }
+
+    // Stop the robot and the threads (safe to call however far the route got)
+    public void shutdown(){
+        drivetrain.setBrake(true);
+        drivetrain.stop();
+        drivetrain.setActive(false);
+        drivetrain.stopController();
+        voltageCompensator.stop();
+    }
+
+    // Wait for the threads to finish after shutdown()
+    public void join() throws InterruptedException {
+        if(drivetrainThread != null) drivetrainThread.join();
+        if(voltageThread != null) voltageThread.join();
+    }
+
+    private void driveToTargetZone(char zone, double offsetX, double offsetY) throws InterruptedException {
+        switch(zone){
+            case 'a':
+                setPositionAndWait(DROP_ZONES_X[0] + offsetX, DROP_ZONES_Y[0] - offsetY, 0);
+                break;
+            case 'b':
+                setPositionAndWait(DROP_ZONES_X[1] + offsetX, DROP_ZONES_Y[1] - offsetY, 0);
+                break;
+            case 'c':
+                setPositionAndWait(DROP_ZONES_X[2] + offsetX*2.2, DROP_ZONES_Y[2] - offsetY/3.6, 0);
+                break;
+        }
+
+        pauseDrivetrain(50);
+        dropWobbleGoal(zone, offsetX != 0);
+
+        startDrivetrain();
+    }
+
+    private void driveToTargetZone(char zone) throws InterruptedException {
+        driveToTargetZone(zone, 0, 0);
+    }
+
+    private void dropWobbleGoal(char zone, boolean secondWobble) throws InterruptedException {
+        // Drop and release the wobble goal
+        arm.setPosition(-60 + offset, 1);
+        claw.goToAngle( 100, 250);
+
+        startDrivetrain();
+
+        Pose pose = drivetrain.positionTracker.getPose();
+        setPositionAndWait(pose.x, -(pose.y - 5), 0);
+        pauseDrivetrain(50);
+
+        // Raise the arm
+        arm.goToPosition( -33, 1);
+
+        if((zone == 'c' || zone == 'b') && secondWobble){
+            extendRake();
+        }
+        while(!isStopRequested() && arm.getPosition() < -40) sleep(10);
+
+        startDrivetrain();
+    }
+
+    private void shootHighGoal(boolean secondTime) throws InterruptedException {
+        launcher.setVelocity(0.67);
+        if(!secondTime) setPositionAndWait(SHOOTING_POS[0] + 12, SHOOTING_POS[1], 0, 3, 5, 0.1);
+        setPositionAndWait(SHOOTING_POS[0], SHOOTING_POS[1], 0);
+
+        for(int i = 0; i < 3; i++){
+            flipper.goToAngle( 25, 250);
+            flipper.goToAngle(50, 500);
+        }
+
+        launcher.setVelocity(0);
+    }
+
+    private void shootPowerShots() throws InterruptedException {
+        // Power on the launcher
+        launcher.setVelocity(0.6);
+        clock.sleep(200);
+
+        for(int i = 0; i < POWER_SHOTS_X.length; i++){
+            setPositionAndWait(POWER_SHOTS_X[i], POWER_SHOTS_Y[i], 0);
+            fire();
+        }
+
+        launcher.setVelocity(0);
+    }
+
+    private void fire() throws InterruptedException {
+        pauseDrivetrain(50);
+        flipper.goToAngle(25, 250);
+        flipper.goToAngle( 50, 500);
+        startDrivetrain();
+    }
+
+    private void pickUpRings() throws InterruptedException {
+        // Pick up some of the ring stack
+        intakeWheels.setPower(1);
+
+        setPositionAndWait(WOBBLE_X, WOBBLE_Y, 0);
+        intakeWheels.setPower(0);
+    }
+
+    private void pickUpWobble(char zone) throws InterruptedException {
+        // Whether or not the robot is going to drive over rings
+        boolean ringStack = zone != 'a';
+
+        // Pick up some of the ring stack
+        if(ringStack) intakeWheels.setPower(1);
+
+        // Drive over the rings and on to the wobble goal without stopping in between
+        // Robot is facing in reverse and x-coordinates are inverted, so use x,-y
+        Pose pose = drivetrain.positionTracker.getPose();
+        Path path = Path.polyline(1,
+                new double[]{pose.x, pose.y, pose.phi},
+                new double[]{WOBBLE_X, -(WOBBLE_Y + 0.5*TILE_SIZE), 0},
+                new double[]{WOBBLE_X, -WOBBLE_Y, 0}
+        );
+        drivetrain.followPath(path);
+
+        // Raise the arm once past the rings (avoid taking in a 4th ring)
+        while(!isStopRequested() && drivetrain.isFollowingPath() && drivetrain.getPathProgress() < path.getWaypointDistance(1)) sleep(10);
+        arm.setPosition( -60 + offset, 1);
+
+        // Drive to wobble
+        awaitArrival(drivetrain.getArrival());
+        drivetrain.stop();
+        claw.goToAngle(100, 250);
+        pauseDrivetrain(50);
+
+        // Raise the arm
+        claw.goToAngle(0, 200);
+        arm.setPosition(-33, 1);
+        while(!isStopRequested() && arm.getPosition() < -40) sleep(10);
+
+        if(ringStack) intakeWheels.setPower(0);
+        startDrivetrain();
+    }
+
+    private void extendRake(){
+        intake.setPower(1);
+        sleep(380);
+        intake.setPower(0);
+    }
+
+    private void parkOverLaunchLine(char zone) throws InterruptedException {
+        // Wait for it, the drivetrain is shut down as soon as the route returns
+        if(zone == 'a'){
+            setPositionAndWait(drivetrain.positionTracker.getPose().x, 3*TILE_SIZE, 0);
+        }else{
+            setPositionAndWait(drivetrain.positionTracker.getPose().x, 3*TILE_SIZE + 65, 0);
+        }
+    }
+
+    private void setPositionAndWait(double x, double y, double phi, double xThresh, double yThresh, double phiThresh) throws InterruptedException {
+        // Robot is facing in reverse and x-coordinates are inverted, so use x,-y
+        drivetrain.setProfiledPosition(x, -y, phi);
+        awaitArrival(drivetrain.getArrival(xThresh, yThresh, phiThresh));
+
+        drivetrain.stop();
+    }
+
+    private void setPositionAndWait(double x, double y, double phi) throws InterruptedException {
+        // Robot is facing in reverse and x-coordinates are inverted, so use x,-y
+        drivetrain.setProfiledPosition(x, -y, phi);
+        awaitArrival(drivetrain.getArrival());
+        drivetrain.stop();
+    }
+
+    // Sleeps until the controller sees the robot settle on the target, the move times out or the route is stopped
+    // Returns whether the robot arrived
+    private boolean awaitArrival(ArrivalFuture arrival) throws InterruptedException {
+        long start = clock.nanoTime();
+        long deadline = clock.millis() + MOVE_TIMEOUT;
+
+        try {
+            // Wake up every so often to check for a stop request
+            while(!isStopRequested() && !arrival.isDone() && clock.millis() < deadline) arrival.await(50);
+        } finally {
+            // Don't leave the controller checking a future nobody is waiting on
+            arrival.cancel(false);
+        }
+
+        arrived(arrival.hasArrived(), clock.nanoTime() - start);
+        return arrival.hasArrived();
+    }
+
+    private void setPosition(double x, double y, double phi){
+        drivetrain.setProfiledPosition(x,-y,phi);
+    }
+
+    private void sleep(int wait){
+        try {
+            clock.sleep(wait);
+        }catch(InterruptedException e){
+            // Keep the interrupt for isStopRequested()
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void pauseDrivetrain(int wait){
+        drivetrain.setActive(false);
+        sleep(wait);
+        drivetrain.stop();
+    }
+
+    private void startDrivetrain(){
+        drivetrain.setActive(true);
+    }
+}
@@ -1,14 +1,28 @@
 package org.firstinspires.ftc.teamcode.api.examples.ultimategoal;
 
+import com.qualcomm.hardware.bosch.BNO055IMU;
+import com.qualcomm.hardware.lynx.LynxModule;
 import com.qualcomm.robotcore.eventloop.opmode.OpMode;
 import com.qualcomm.robotcore.eventloop.opmode.TeleOp;
 
+import org.firstinspires.ftc.teamcode.api.BulkReadCache;
 import org.firstinspires.ftc.teamcode.api.ControlledDrivetrain;
+import org.firstinspires.ftc.teamcode.api.ControllerGains;
 import org.firstinspires.ftc.teamcode.api.DcMotorX;
+import org.firstinspires.ftc.teamcode.api.ImuHeading;
+import org.firstinspires.ftc.teamcode.api.LatencyHistogram;
+import org.firstinspires.ftc.teamcode.api.LatencyMonitor;
 import org.firstinspires.ftc.teamcode.api.LimitedMotorX;
+import org.firstinspires.ftc.teamcode.api.MutablePose2d;
 import org.firstinspires.ftc.teamcode.api.Odometry;
+import org.firstinspires.ftc.teamcode.api.OdometryConfig;
+import org.firstinspires.ftc.teamcode.api.RobotClock;
 import org.firstinspires.ftc.teamcode.api.ServoX;
 import org.firstinspires.ftc.teamcode.api.State;
+import org.firstinspires.ftc.teamcode.api.VoltageCompensator;
+
+import java.io.File;
+import java.io.IOException;
 
 //@TeleOp
 public class Drive extends OpMode {
@@ -16,8 +30,8 @@ public class Drive extends OpMode {
     // Odometry parameters
     private int ticksPerRev = 8192;
     private double circumference = 15.71;
-    private double width = 40.8;
-    private double backDistancePerRadian = -41.577/(2*Math.PI);
+    private double width = OdometryConfig.DEFAULT_WIDTH;
+    private double backDistancePerRadian = OdometryConfig.DEFAULT_BACK_DISTANCE_PER_RADIAN;
 
     // Where the robot starts (in cm from the right wall)
     private double x0 = 112.395;
@@ -25,6 +39,18 @@ public class Drive extends OpMode {
     private double phi0 = 0;
 
     private ControlledDrivetrain drivetrain;
+    // Reads the hub's IMU to keep the odometry heading from drifting
+    private ImuHeading imuHeading;
+    private VoltageCompensator voltageCompensator;
+
+    // Time taken by every loop and hub call, saved when the OpMode stops
+    private final LatencyMonitor latencyMonitor = new LatencyMonitor();
+    private static final File LATENCY_FILE = new File("/sdcard/FIRST/latency.csv");
+    // Control loop histograms shown every loop (looked up once in init) and the snapshots they're read into
+    private LatencyHistogram controlPeriod;
+    private LatencyHistogram controlWork;
+    private final LatencyHistogram.Snapshot controlPeriodSnapshot = new LatencyHistogram.Snapshot();
+    private final LatencyHistogram.Snapshot controlWorkSnapshot = new LatencyHistogram.Snapshot();
 
     private double launcherSpeed = 0.68;
 
@@ -32,8 +58,13 @@ public class Drive extends OpMode {
     private State.Buttons lastButtons1 = new State.Buttons();
     private State.Dpad lastDpads1 = new State.Dpad();
     private State.Bumpers lastBumpers1 = new State.Bumpers();
+    // Reused to read the pose for telemetry every loop
+    private final MutablePose2d pose = new MutablePose2d();
+
+    // Clock for timing and threads (the default is the wall clock)
+    private final RobotClock clock = RobotClock.getDefault();
 
-    private double lastTimeHit = System.currentTimeMillis();
+    private double lastTimeHit = clock.millis();
     private boolean flipperClosed = false;
 
     private double offset = -60;
@@ -108,8 +139,24 @@ public class Drive extends OpMode {
         indicator = new ServoX(hardwareMap.servo.get("indicator"));
         indicator.setAngle(70 - 20*shootingIndex);
 
-        // Create an odometry instance for the drivetrain
-        Odometry positionTracker = new Odometry(wheelR, wheelL, wheelB, 50, backDistancePerRadian, width, x0, y0, phi0);
+        // Read each hub's encoders in one transaction per cycle (drivetrain and odometry on the Control Hub, the rest on
+        // the Expansion Hub, change the names and motors to match the robot's configuration)
+        BulkReadCache controlHub = new BulkReadCache(hardwareMap.get(LynxModule.class, "Control Hub"));
+        controlHub.attach(mRF, mLF, mRB, mLB, wheelR, wheelL, wheelB);
+        BulkReadCache expansionHub = new BulkReadCache(hardwareMap.get(LynxModule.class, "Expansion Hub 2"));
+        expansionHub.attach(arm, launcher, intake, intakeWheels);
+
+        // Create an odometry instance for the drivetrain (calibrated geometry is used if it has been saved)
+        OdometryConfig odometryConfig = OdometryConfig.load(OdometryConfig.DEFAULT_FILE, width, backDistancePerRadian);
+        Odometry positionTracker = new Odometry(wheelR, wheelL, wheelB, 50, odometryConfig, x0, y0, phi0);
+
+        // Blend the hub's built-in IMU into the odometry heading (read on its own thread)
+        BNO055IMU imu = hardwareMap.get(BNO055IMU.class, "imu");
+        imu.initialize(new BNO055IMU.Parameters());
+        imuHeading = new ImuHeading(imu);
+        positionTracker.setHeadingFusion(imuHeading, 0.05);
+        Thread imuThread = clock.newThread(imuHeading);
+        imuThread.start();
 
         // Instantiate the PID-controlled drivetrain
         drivetrain = new ControlledDrivetrain(mRF, mLF, mRB, mLB, positionTracker);
@@ -117,14 +164,37 @@ public class Drive extends OpMode {
         drivetrain.reverse();
         // Adding logging to drivetrain (only needed for development)
         drivetrain.telemetry = telemetry;
+        // Time the loops and every hub call
+        drivetrain.setLatencyMonitor(latencyMonitor);
+        intake.setLatencyMonitor(latencyMonitor, "intake");
+        intakeWheels.setLatencyMonitor(latencyMonitor, "intakeWheels");
+        launcher.setLatencyMonitor(latencyMonitor, "launcher");
+        arm.setLatencyMonitor(latencyMonitor, "arm");
+        flipper.setLatencyMonitor(latencyMonitor, "flipper");
+        claw.setLatencyMonitor(latencyMonitor, "claw");
+        indicator.setLatencyMonitor(latencyMonitor, "indicator");
+        controlHub.setLatencyMonitor(latencyMonitor, "control hub");
+        expansionHub.setLatencyMonitor(latencyMonitor, "expansion hub");
+        controlPeriod = latencyMonitor.get("control period");
+        controlWork = latencyMonitor.get("control work");
+        // Use the tuned gains if they have been saved
+        drivetrain.setGains(ControllerGains.load(ControllerGains.DEFAULT_FILE, drivetrain.getGains()));
+        // Keep drive power (and so the gains) consistent as the battery drains
+        voltageCompensator = new VoltageCompensator(hardwareMap);
+        drivetrain.setVoltageCompensator(voltageCompensator);
+        Thread voltageThread = clock.newThread(voltageCompensator);
+        voltageThread.start();
         // Start with the drivetrain off
         drivetrain.setActive(false);
         // Run it on a separate thread
-        Thread drivetrainThread = new Thread(drivetrain);
+        Thread drivetrainThread = clock.newThread(drivetrain);
         drivetrainThread.start();
     }
 
     public void start(){
+        // Only count calls made while driving
+        latencyMonitor.reset();
+
         arm.reset();
         arm.resetEncoder();
         arm.controlPosition();
@@ -169,7 +239,7 @@ public class Drive extends OpMode {
             drivetrain.setPosition(
                     shootingPositionsX[shootingIndex],
                     shootingPositionsY[shootingIndex],
-                    getClosestAngleToZero(drivetrain.positionTracker.phi)
+                    0
             );
 
             drivetrain.setActive(true);
@@ -238,10 +308,10 @@ public class Drive extends OpMode {
 
 
         // Move the launcher servo
-        double timeElapsed = System.currentTimeMillis() - lastTimeHit;
+        double timeElapsed = clock.millis() - lastTimeHit;
 
         if((aHit || (a && timeElapsed > 450)) && launcher.getPower() > 0){
-            lastTimeHit = System.currentTimeMillis();
+            lastTimeHit = clock.millis();
             flipperClosed = false;
             flipper.setAngle(25);
         }else if(timeElapsed > 200 && !flipperClosed){
@@ -284,23 +354,31 @@ public class Drive extends OpMode {
         lastDpads1.update(dpadUp, dpadDown, dpadRight, dpadLeft);
         lastBumpers1.update(bumperRight, bumperLeft);
 
-        telemetry.addData("x", drivetrain.positionTracker.x);
-        telemetry.addData("y", drivetrain.positionTracker.y);
-        telemetry.addData("Heading", drivetrain.positionTracker.phi);
+        drivetrain.positionTracker.getPose(pose);
+        telemetry.addData("x", pose.x);
+        telemetry.addData("y", pose.y);
+        telemetry.addData("Heading", pose.phi);
+        telemetry.addData("Drive writes saved/s", drivetrain.getSavedWritesPerSecond());
+        telemetry.addData("Control period", controlPeriod.getSnapshot(controlPeriodSnapshot).toString());
+        telemetry.addData("Control work", controlWork.getSnapshot(controlWorkSnapshot).toString());
     }
 
     private double rateCurve(double input, double rate){
         return Math.pow(Math.abs(input),rate)*((input>0)?1:-1);
     }
 
-    private double getClosestAngleToZero(double angle){
-        return Math.round(angle/(2*Math.PI))*2*Math.PI;
-    }
-
     public void stop(){
         drivetrain.setActive(false);
         drivetrain.stop();
         drivetrain.stopController();
+        imuHeading.stop();
+        voltageCompensator.stop();
+
+        try {
+            latencyMonitor.write(LATENCY_FILE);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
     }
 
     @Override